@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.impl.MLKeyword.Mention;
+
+/**
+ * Texts and {@link MLAnnotation}s used by the benchmarks. Annotations are
+ * generated deterministically from the texts: every capitalized word with
+ * more than three chars is a keyword with all its occurrences as mentions.
+ * This results in keyword densities similar to <b>/annotate</b> responses
+ * with types, crosses, abstracts and images enabled.
+ */
+final class AnnotationFixture {
+
+    /**
+     * The size of the fixture texts
+     */
+    enum Size {
+        /**
+         * A single sentence
+         */
+        SHORT,
+        /**
+         * The <code>text1.txt</code> (English) or <code>text_de.txt</code>
+         * (German) test text
+         */
+        MEDIUM,
+        /**
+         * A long document (about 200k chars) created by repeating the medium text
+         */
+        LONG
+    }
+
+    private static final Map<String,String> SHORT_TEXTS = new LinkedHashMap<String,String>();
+    static {
+        SHORT_TEXTS.put("en", "President Obama is meeting Angela Merkel in Berlin on Monday");
+        SHORT_TEXTS.put("de", "Pr\u00e4sident Obama trifft Angela Merkel am Montag in Berlin");
+    }
+    private static final int LONG_TEXT_LENGTH = 200000;
+
+    private static final Pattern KEYWORD = Pattern.compile("\\b\\p{Lu}[\\p{L}-]{3,}");
+
+    private static final List<MLKeyword.Type> TYPES = Arrays.asList(
+        new MLKeyword.Type(MLConstants.AIRPEDIA_CLASS_PREFIX + "Person", "airpedia"),
+        new MLKeyword.Type(MLConstants.AIRPEDIA_CLASS_PREFIX + "Place", "airpedia"),
+        new MLKeyword.Type(MLConstants.AIRPEDIA_CLASS_PREFIX + "Organisation", "airpedia"),
+        new MLKeyword.Type("http://schema.org/Thing", "schema"));
+
+    private static final List<String> TOPICS = Arrays.asList(
+        MLConstants.AIRPEDIA_TOPIC_PREFIX + "Politics", MLConstants.AIRPEDIA_TOPIC_PREFIX + "Science/technology",
+        MLConstants.AIRPEDIA_TOPIC_PREFIX + "Sports", MLConstants.AIRPEDIA_TOPIC_PREFIX + "Philosophy/Psychology");
+
+    private AnnotationFixture(){}
+
+    /**
+     * Getter for the text of the parsed size and language
+     * @param size the size
+     * @param lang the language (<code>en</code> or <code>de</code>)
+     * @return the text
+     * @throws IOException if the test texts can not be loaded
+     */
+    public static String getText(Size size, String lang) throws IOException {
+        if(size == Size.SHORT){
+            return SHORT_TEXTS.get(lang);
+        }
+        String text = IOUtils.toString(AnnotationFixture.class.getResourceAsStream(
+            "en".equals(lang) ? "text1.txt" : "text_de.txt"), "UTF-8");
+        if(size == Size.LONG){
+            StringBuilder sb = new StringBuilder(LONG_TEXT_LENGTH + text.length());
+            while(sb.length() < LONG_TEXT_LENGTH){
+                sb.append(text).append("\n\n");
+            }
+            text = sb.toString();
+        }
+        return text;
+    }
+
+    /**
+     * Creates the annotation for the parsed text
+     * @param text the text
+     * @param lang the language of the text
+     * @return the annotation
+     */
+    public static MLAnnotation createAnnotation(String text, String lang) {
+        Map<String,List<Mention>> mentions = new LinkedHashMap<String,List<Mention>>();
+        Matcher matcher = KEYWORD.matcher(text);
+        while(matcher.find()){
+            List<Mention> keywordMentions = mentions.get(matcher.group());
+            if(keywordMentions == null){
+                keywordMentions = new ArrayList<Mention>();
+                mentions.put(matcher.group(), keywordMentions);
+            }
+            keywordMentions.add(new Mention(matcher.start(), matcher.end(), matcher.group()));
+        }
+        List<MLKeyword> keywords = new ArrayList<MLKeyword>(mentions.size());
+        int i = 0;
+        for(Map.Entry<String,List<Mention>> entry : mentions.entrySet()){
+            String page = entry.getKey();
+            keywords.add(new MLKeyword(page, page, "en".equals(lang) ? null : page + "_(en)",
+                0.5 + (i % 50) / 100d, Collections.singletonList(TYPES.get(i % TYPES.size())),
+                "The abstract of the Wikipedia page " + page + " as included if abstracts "
+                    + "are requested. Abstracts are typically several sentences long.",
+                "http://upload.wikimedia.org/wikipedia/commons/" + page + ".jpg",
+                "http://upload.wikimedia.org/wikipedia/commons/thumb/" + page + ".jpg",
+                entry.getValue()));
+            i++;
+        }
+        List<MLTopic> topics = new ArrayList<MLTopic>(TOPICS.size());
+        for(int t = 0; t < TOPICS.size(); t++){
+            String url = TOPICS.get(t);
+            topics.add(new MLTopic(url, url.substring(MLConstants.AIRPEDIA_TOPIC_PREFIX.length()), 
+                0.9 - t * 0.2));
+        }
+        return new MLAnnotation(lang, keywords, topics);
+    }
+}
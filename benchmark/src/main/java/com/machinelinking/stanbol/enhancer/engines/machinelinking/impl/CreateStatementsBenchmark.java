@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.clerezza.rdf.core.MGraph;
+import org.apache.clerezza.rdf.core.impl.SimpleMGraph;
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.cm.ConfigurationException;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+
+/**
+ * Benchmarks the conversion of {@link MLAnnotation}s to Stanbol enhancements
+ * and the reading of the text from {@link ContentItem}s. Use
+ * <code>-prof gc</code> to measure allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateStatementsBenchmark {
+
+    @Param({"SHORT", "MEDIUM", "LONG"})
+    public AnnotationFixture.Size size;
+
+    @Param({"en", "de"})
+    public String lang;
+
+    @Param({"false", "true"})
+    public boolean entityData;
+
+    private MLAnnotateEnhancementEngine engine;
+    private ContentItem ci;
+    private String text;
+    private MLAnnotation annotation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ConfigurationException {
+        engine = new MLAnnotateEnhancementEngine();
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(EnhancementEngine.PROPERTY_NAME, "machinelinkingBenchmark");
+        //no requests are sent by the benchmarks
+        properties.put(MLConstants.APP_ID, "benchmark");
+        properties.put(MLConstants.APP_KEY, "benchmark");
+        properties.put(MLConstants.CONNECTION_TIMEOUT, 30 * 1000);
+        properties.put(MLConstants.TOPIC, Boolean.TRUE);
+        properties.put(MLConstants.INCLUDE_ENTITY_DATA, entityData);
+        engine.activate(new BenchmarkComponentContext(properties));
+        text = AnnotationFixture.getText(size, lang);
+        annotation = AnnotationFixture.createAnnotation(text, lang);
+        ci = InMemoryContentItemFactory.getInstance().createContentItem(new StringSource(text));
+        //decodes the text and adds it as content part used by getCachedInputText
+        Util.getInputText(ci);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.deactivate(null);
+    }
+
+    @Benchmark
+    public MGraph createStatements() {
+        MGraph enhancements = new SimpleMGraph();
+        engine.createStatements(ci, annotation, text, lang, enhancements);
+        return enhancements;
+    }
+
+    @Benchmark
+    public MGraph createStatementsDetectedLanguage() {
+        MGraph enhancements = new SimpleMGraph();
+        engine.createStatements(ci, annotation, text, null, enhancements);
+        return enhancements;
+    }
+
+    /**
+     * Reads the text from a new {@link ContentItem} (decoding the blob)
+     */
+    @Benchmark
+    public String getInputText(FreshContentItem fresh) throws IOException {
+        return Util.getInputText(fresh.ci);
+    }
+
+    /**
+     * Reads the text already decoded by an other engine
+     */
+    @Benchmark
+    public String getCachedInputText() throws IOException {
+        return Util.getInputText(ci);
+    }
+
+    /**
+     * A new {@link ContentItem} for every invocation so that the text needs
+     * to be decoded. Creating the content item is not measured.
+     */
+    @State(Scope.Thread)
+    public static class FreshContentItem {
+
+        ContentItem ci;
+
+        @Setup(Level.Invocation)
+        public void setUp(CreateStatementsBenchmark benchmark) throws IOException {
+            ci = InMemoryContentItemFactory.getInstance().createContentItem(
+                new StringSource(benchmark.text));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.clerezza.rdf.core.Language;
+import org.apache.clerezza.rdf.core.MGraph;
+import org.apache.clerezza.rdf.core.UriRef;
+import org.apache.clerezza.rdf.core.impl.SimpleMGraph;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.cm.ConfigurationException;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+
+/**
+ * Benchmarks the creation of DBPedia resource and topic URIs and of the
+ * entity information for single keywords. The keywords of the
+ * {@link AnnotationFixture.Size#LONG long} fixture text are used
+ * round-robin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriBenchmark {
+
+    @Param({"en", "de"})
+    public String lang;
+
+    private MLAnnotateEnhancementEngine engine;
+    private List<MLKeyword> keywords;
+    private List<MLTopic> topics;
+    private Language language;
+    private UriRef entity;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ConfigurationException {
+        engine = new MLAnnotateEnhancementEngine();
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(EnhancementEngine.PROPERTY_NAME, "machinelinkingBenchmark");
+        //no requests are sent by the benchmarks
+        properties.put(MLConstants.APP_ID, "benchmark");
+        properties.put(MLConstants.APP_KEY, "benchmark");
+        properties.put(MLConstants.CONNECTION_TIMEOUT, 30 * 1000);
+        engine.activate(new BenchmarkComponentContext(properties));
+        MLAnnotation annotation = AnnotationFixture.createAnnotation(
+            AnnotationFixture.getText(AnnotationFixture.Size.LONG, lang), lang);
+        keywords = annotation.getKeywords();
+        topics = annotation.getTopics();
+        language = new Language(lang);
+        entity = new UriRef(MLConstants.DBPEDIA_RESOURCE_PREFIX + "Benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.deactivate(null);
+    }
+
+    private MLKeyword nextKeyword() {
+        index = index + 1 < keywords.size() ? index + 1 : 0;
+        return keywords.get(index);
+    }
+
+    @Benchmark
+    public UriRef createDbpediaResourceURI() {
+        MLKeyword keyword = nextKeyword();
+        return engine.createDbpediaResourceURI(lang, keyword.getSensePage(), keyword.getEnglishPage());
+    }
+
+    @Benchmark
+    public UriRef createDbpediaTopicUri() {
+        index = index + 1 < topics.size() ? index + 1 : 0;
+        return engine.createDbpediaTopicUri(topics.get(index).getUrl());
+    }
+
+    @Benchmark
+    public MGraph writeEntityInformation() {
+        MGraph graph = new SimpleMGraph();
+        engine.writeEntityInformation(graph, nextKeyword(), entity, language);
+        return graph;
+    }
+}
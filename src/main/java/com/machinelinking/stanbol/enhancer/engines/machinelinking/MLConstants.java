@@ -100,7 +100,329 @@ public interface MLConstants {
      * By default {@link #KEYWORD} is enabled
      */
     boolean DEFAULT_KEYWORD_STATE = true;
-    
+
+    /**
+     * The maximum number of <b>/annotate</b> responses kept in the in-memory
+     * response cache. Set to <code>0</code> to deactivate caching. Cached
+     * responses are reused for up to {@link #ANNOTATION_CACHE_TTL} seconds.
+     */
+    String ANNOTATION_CACHE_SIZE = "ml.cache.maxEntries";
+    /**
+     * The response cache is deactivated by default
+     */
+    int DEFAULT_ANNOTATION_CACHE_SIZE = 0;
+    /**
+     * The maximum (estimated) size of all cached <b>/annotate</b> responses
+     * in bytes. Set to <code>0</code> to deactivate the size limit.
+     */
+    String ANNOTATION_CACHE_MAX_BYTES = "ml.cache.maxBytes";
+    /**
+     * Default maximum size of the response cache (16MByte)
+     */
+    int DEFAULT_ANNOTATION_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+    /**
+     * The time to live of cached <b>/annotate</b> responses in seconds.
+     * Set to <code>0</code> to keep responses until they are evicted.
+     */
+    String ANNOTATION_CACHE_TTL = "ml.cache.ttl";
+    /**
+     * By default cached responses expire after one hour
+     */
+    int DEFAULT_ANNOTATION_CACHE_TTL = 60 * 60;
+
+    /**
+     * The maximum number of <b>/lang</b> responses kept in the in-memory
+     * language cache. Set to <code>0</code> to deactivate caching. Cached
+     * responses are reused for up to {@link #LANGUAGE_CACHE_TTL} seconds.
+     */
+    String LANGUAGE_CACHE_SIZE = "ml.langCache.maxEntries";
+    /**
+     * The language cache is deactivated by default
+     */
+    int DEFAULT_LANGUAGE_CACHE_SIZE = 0;
+    /**
+     * The time to live of cached <b>/lang</b> responses in seconds.
+     * Set to <code>0</code> to keep responses until they are evicted.
+     */
+    String LANGUAGE_CACHE_TTL = "ml.langCache.ttl";
+    /**
+     * By default cached language guesses expire after one day
+     */
+    int DEFAULT_LANGUAGE_CACHE_TTL = 24 * 60 * 60;
+
+    /**
+     * The maximum number of bytes (UTF-8) of the text sent to the <b>/lang</b>
+     * endpoint. Longer texts are sampled according to the 
+     * {@link #LANGUAGE_SAMPLE_STRATEGY}. Set to <code>0</code> to send the
+     * whole text.
+     */
+    String LANGUAGE_SAMPLE_SIZE = "ml.langid.sampleSize";
+    /**
+     * By default the whole text is sent to the <b>/lang</b> endpoint
+     */
+    int DEFAULT_LANGUAGE_SAMPLE_SIZE = 0;
+    /**
+     * The strategy used to sample texts longer as the {@link #LANGUAGE_SAMPLE_SIZE}:
+     * <code>head</code> uses the beginning of the text, <code>windows</code>
+     * uses {@link #LANGUAGE_SAMPLE_WINDOWS} evenly spaced windows.
+     */
+    String LANGUAGE_SAMPLE_STRATEGY = "ml.langid.sampleStrategy";
+    /**
+     * By default the <code>windows</code> strategy is used
+     */
+    String DEFAULT_LANGUAGE_SAMPLE_STRATEGY = "windows";
+    /**
+     * The number of windows used by the <code>windows</code>
+     * {@link #LANGUAGE_SAMPLE_STRATEGY}
+     */
+    String LANGUAGE_SAMPLE_WINDOWS = "ml.langid.sampleWindows";
+    /**
+     * By default <code>3</code> windows are used
+     */
+    int DEFAULT_LANGUAGE_SAMPLE_WINDOWS = 3;
+    /**
+     * If enabled the language of each sampled window is guessed separately
+     * and the language guessed for most windows is used. Otherwise the windows
+     * are sent with a single request.
+     */
+    String LANGUAGE_SAMPLE_MAJORITY_VOTE = "ml.langid.majorityVote";
+    /**
+     * By default majority voting is disabled
+     */
+    boolean DEFAULT_LANGUAGE_SAMPLE_MAJORITY_VOTE = false;
+    /**
+     * The minimum confidence of the embedded language detector required to
+     * use its result instead of calling the <b>/lang</b> endpoint. Texts in
+     * languages without an embedded profile get a low confidence and are
+     * still sent to the <b>/lang</b> endpoint. Set to <code>0</code> to
+     * deactivate the embedded language detector. <code>0.9</code> is a
+     * reasonable value to activate it.
+     */
+    String LANGUAGE_LOCAL_CONFIDENCE = "ml.langid.localConfidence";
+    /**
+     * By default the embedded language detector is deactivated
+     */
+    double DEFAULT_LANGUAGE_LOCAL_CONFIDENCE = 0;
+
+    /**
+     * The maximum number of chars sent to the <b>/annotate</b> endpoint with
+     * a single request. Longer texts are split at sentence boundaries in chunks
+     * that are annotated concurrently. Set to <code>0</code> to deactivate
+     * chunking.
+     */
+    String CHUNK_SIZE = "ml.chunk.size";
+    /**
+     * By default chunking is deactivated
+     */
+    int DEFAULT_CHUNK_SIZE = 0;
+    /**
+     * The number of threads used to annotate the chunks of long texts
+     * (see {@link #CHUNK_SIZE})
+     */
+    String CHUNK_THREADS = "ml.chunk.threads";
+    /**
+     * By default up to <code>4</code> chunks are annotated concurrently
+     */
+    int DEFAULT_CHUNK_THREADS = 4;
+    /**
+     * The maximum number of concurrent requests an annotation engine sends
+     * to <i>MachineLinking</i>. Values <code>&lt;= 0</code> deactivate this
+     * limit.
+     */
+    String MAX_CONCURRENT_REQUESTS = "ml.maxConcurrentRequests";
+    /**
+     * By default the number of concurrent requests is not limited
+     */
+    int DEFAULT_MAX_CONCURRENT_REQUESTS = 0;
+    /**
+     * The maximum number of requests waiting if {@link #MAX_CONCURRENT_REQUESTS}
+     * are in flight. Additional requests fail immediately.
+     */
+    String MAX_QUEUED_REQUESTS = "ml.maxQueuedRequests";
+    /**
+     * By default up to <code>100</code> requests are queued
+     */
+    int DEFAULT_MAX_QUEUED_REQUESTS = 100;
+    /**
+     * The maximum time in milliseconds a queued request waits before it fails
+     */
+    String QUEUE_TIMEOUT = "ml.queueTimeout";
+    /**
+     * By default queued requests wait up to <code>10</code> seconds
+     */
+    int DEFAULT_QUEUE_TIMEOUT = 10000;
+    /**
+     * The maximum number of requests per second sent to <i>MachineLinking</i>
+     * by all engines using the same {@link #APP_ID}. Values <code>&lt;= 0</code>
+     * deactivate rate limiting.
+     */
+    String RATE_PER_SECOND = "ml.rate.perSecond";
+    /**
+     * By default requests are not rate limited
+     */
+    int DEFAULT_RATE_PER_SECOND = 0;
+    /**
+     * The maximum number of requests sent at once after a period without
+     * requests. Values <code>&lt;= 0</code> use the {@link #RATE_PER_SECOND}.
+     */
+    String RATE_BURST = "ml.rate.burst";
+    /**
+     * By default the burst size is the {@link #RATE_PER_SECOND}
+     */
+    int DEFAULT_RATE_BURST = 0;
+    /**
+     * The maximum number of requests per day sent by all engines using the
+     * same {@link #APP_ID}. Values <code>&lt;= 0</code> deactivate this limit.
+     */
+    String RATE_PER_DAY = "ml.rate.perDay";
+    /**
+     * By default the requests per day are not limited
+     */
+    int DEFAULT_RATE_PER_DAY = 0;
+    /**
+     * The maximum time in milliseconds a rate limited request waits before
+     * it fails
+     */
+    String RATE_MAX_WAIT = "ml.rate.maxWait";
+    /**
+     * By default rate limited requests wait up to <code>10</code> seconds
+     */
+    int DEFAULT_RATE_MAX_WAIT = 10000;
+    /**
+     * The failure rate in percent of the last {@link #CIRCUIT_WINDOW_SIZE}
+     * requests that opens the circuit breaker of an engine. While open
+     * requests are not sent to <i>MachineLinking</i>. Values <code>&lt;= 0</code>
+     * deactivate the circuit breaker.
+     */
+    String CIRCUIT_FAILURE_RATE = "ml.circuit.failureRate";
+    /**
+     * By default the circuit breaker is deactivated
+     */
+    int DEFAULT_CIRCUIT_FAILURE_RATE = 0;
+    /**
+     * The number of requests used to calculate the failure rate
+     */
+    String CIRCUIT_WINDOW_SIZE = "ml.circuit.windowSize";
+    /**
+     * By default the failure rate of the last <code>20</code> requests is used
+     */
+    int DEFAULT_CIRCUIT_WINDOW_SIZE = 20;
+    /**
+     * The time in milliseconds the circuit stays open before a probe request
+     * is sent
+     */
+    String CIRCUIT_OPEN_DURATION = "ml.circuit.openDuration";
+    /**
+     * By default the circuit stays open for <code>30</code> seconds
+     */
+    int DEFAULT_CIRCUIT_OPEN_DURATION = 30000;
+    /**
+     * If enabled content items are skipped (no enhancements are added) while
+     * the circuit is open. Otherwise the enhancement fails.
+     */
+    String CIRCUIT_SKIP = "ml.circuit.skip";
+    /**
+     * By default the enhancement fails while the circuit is open
+     */
+    boolean DEFAULT_CIRCUIT_SKIP = false;
+    /**
+     * Requests are cancelled if they do not complete within the observed
+     * {@link #DEADLINE_PERCENTILE} latency of requests with similar text
+     * lengths multiplied with this factor. Values <code>&lt;= 0</code>
+     * deactivate adaptive deadlines. A factor of <code>3</code> is a good
+     * starting point.
+     */
+    String DEADLINE_FACTOR = "ml.deadline.factor";
+    /**
+     * Adaptive deadlines are deactivated by default
+     */
+    double DEFAULT_DEADLINE_FACTOR = 0;
+    /**
+     * The percentile (<code>[0..1]</code>) of the observed latencies used to
+     * calculate the deadline
+     */
+    String DEADLINE_PERCENTILE = "ml.deadline.percentile";
+    /**
+     * By default the 99th percentile is used
+     */
+    double DEFAULT_DEADLINE_PERCENTILE = 0.99;
+    /**
+     * The minimum deadline in milliseconds
+     */
+    String DEADLINE_MIN = "ml.deadline.min";
+    /**
+     * By default requests get at least <code>2</code> seconds
+     */
+    int DEFAULT_DEADLINE_MIN = 2000;
+    /**
+     * The maximum deadline in milliseconds. Values <code>&lt;= 0</code> use
+     * the {@link #CONNECTION_TIMEOUT}
+     */
+    String DEADLINE_MAX = "ml.deadline.max";
+    /**
+     * By default the {@link #CONNECTION_TIMEOUT} is used as maximum deadline
+     */
+    int DEFAULT_DEADLINE_MAX = 0;
+    /**
+     * If a request has not answered within this percentile (<code>(0..1]</code>)
+     * of the observed latencies of requests with similar text lengths a 
+     * second identical request is sent. The first response wins. Values
+     * <code>&lt;= 0</code> deactivate hedging.
+     */
+    String HEDGE_PERCENTILE = "ml.hedge.percentile";
+    /**
+     * By default hedging is deactivated
+     */
+    double DEFAULT_HEDGE_PERCENTILE = 0;
+    /**
+     * The maximum ratio of hedged requests (e.g. <code>0.05</code> for up to
+     * one hedged request every twenty requests)
+     */
+    String HEDGE_MAX_EXTRA_LOAD = "ml.hedge.maxExtraLoad";
+    /**
+     * By default up to 5% additional requests are sent
+     */
+    double DEFAULT_HEDGE_MAX_EXTRA_LOAD = 0.05;
+    /**
+     * Texts with up to this number of chars and a known language are combined
+     * with other small texts to a single annotation request. Values 
+     * <code>&lt;= 0</code> deactivate batching. Batching is not supported if
+     * {@link #TOPIC}s are requested.
+     */
+    String BATCH_MAX_TEXT_LENGTH = "ml.batch.maxTextLength";
+    /**
+     * By default batching is deactivated
+     */
+    int DEFAULT_BATCH_MAX_TEXT_LENGTH = 0;
+    /**
+     * The maximum number of chars of a batch
+     */
+    String BATCH_MAX_LENGTH = "ml.batch.maxLength";
+    /**
+     * By default batches have up to <code>8000</code> chars
+     */
+    int DEFAULT_BATCH_MAX_LENGTH = 8000;
+    /**
+     * The maximum time in milliseconds a text waits for other texts to be
+     * batched with
+     */
+    String BATCH_MAX_WAIT = "ml.batch.maxWait";
+    /**
+     * By default texts wait up to <code>20</code> milliseconds
+     */
+    int DEFAULT_BATCH_MAX_WAIT = 20;
+    /**
+     * The triples written for the mentions of keywords: <code>full</code>
+     * writes start, end, selected text, type and selection context,
+     * <code>compact</code> skips the selection context and <code>minimal</code>
+     * only writes the start and end offsets.
+     */
+    String OUTPUT_PROFILE = "ml.outputProfile";
+    /**
+     * By default the <code>full</code> profile is used
+     */
+    String DEFAULT_OUTPUT_PROFILE = "full";
+
     /* REQUEST PARAMETERS */
     /**
      * whether to add external links to identified keywords (optional, requires “disambiguation=1″)
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+/**
+ * Calculates per request deadlines based on the observed latencies of
+ * requests with similar text lengths. Latencies are recorded in a
+ * {@link Histogram} per text length bucket (powers of two starting at
+ * <code>256</code> chars). The deadline is the configured percentile of the
+ * bucket multiplied with the factor and clamped to <code>[min..max]</code>.
+ * Until enough latencies are recorded for a bucket the maximum is used.<p>
+ * Only latencies of the last {@link #LATENCY_WINDOW} to two windows are
+ * considered (see {@link SlidingHistogram}) so that deadlines follow changes
+ * of the service latency.
+ */
+class AdaptiveDeadline {
+
+    /**
+     * Texts shorter as <code>2^MIN_BUCKET_EXP</code> chars use the first bucket
+     */
+    private static final int MIN_BUCKET_EXP = 8;
+    /**
+     * Texts longer as <code>2^MAX_BUCKET_EXP</code> chars use the last bucket
+     */
+    private static final int MAX_BUCKET_EXP = 22;
+    /**
+     * The minimum number of latencies recorded for a bucket before the
+     * deadline is derived from its distribution
+     */
+    static final int MIN_SAMPLES = 20;
+    /**
+     * The window of the recorded latencies in milliseconds (5 minutes)
+     */
+    static final long LATENCY_WINDOW = 5 * 60 * 1000;
+
+    private final double percentile;
+    private final double factor;
+    private final long min;
+    private final long max;
+    private final SlidingHistogram[] latencies;
+
+    /**
+     * Creates a new instance
+     * @param percentile the percentile (<code>[0..1]</code>) of the observed
+     * latencies
+     * @param factor the factor applied to the percentile
+     * @param min the minimum deadline in milliseconds
+     * @param max the maximum deadline in milliseconds
+     */
+    public AdaptiveDeadline(double percentile, double factor, long min, long max) {
+        this(percentile, factor, min, max, LATENCY_WINDOW);
+    }
+
+    /**
+     * Creates a new instance
+     * @param percentile the percentile (<code>[0..1]</code>) of the observed
+     * latencies
+     * @param factor the factor applied to the percentile
+     * @param min the minimum deadline in milliseconds
+     * @param max the maximum deadline in milliseconds
+     * @param window the window of the recorded latencies in milliseconds
+     */
+    AdaptiveDeadline(double percentile, double factor, long min, long max, long window) {
+        if(factor <= 0){
+            throw new IllegalArgumentException("The factor MUST BE > 0 (parsed: " + factor + ")!");
+        }
+        if(min > max){
+            throw new IllegalArgumentException("The minimum deadline MUST NOT BE greater as the maximum"
+                    + " (min: " + min + "ms, max: " + max + "ms)!");
+        }
+        this.percentile = percentile;
+        this.factor = factor;
+        this.min = min;
+        this.max = max;
+        this.latencies = new SlidingHistogram[MAX_BUCKET_EXP - MIN_BUCKET_EXP + 1];
+        for(int i = 0; i < latencies.length; i++){
+            latencies[i] = new SlidingHistogram("ms", window);
+        }
+    }
+
+    /**
+     * The deadline for a request
+     * @param textLength the length of the text
+     * @return the deadline in milliseconds
+     */
+    public long getDeadline(int textLength) {
+        Histogram histogram = latencies[getBucket(textLength)].getHistogram();
+        if(histogram.getCount() < MIN_SAMPLES){
+            return max;
+        }
+        long deadline = (long)Math.ceil(histogram.getPercentile(percentile) * factor);
+        return Math.max(min, Math.min(max, deadline));
+    }
+
+    /**
+     * Records the latency of a request
+     * @param textLength the length of the text
+     * @param latency the latency in milliseconds. For requests that have
+     * exceeded the deadline the deadline is recorded.
+     */
+    public void record(int textLength, long latency) {
+        latencies[getBucket(textLength)].record(latency);
+    }
+
+    /**
+     * The recent latencies of requests with the parsed text length
+     * @param textLength the text length
+     * @return the histogram with the latencies in milliseconds
+     */
+    public Histogram getLatencies(int textLength) {
+        return latencies[getBucket(textLength)].getHistogram();
+    }
+
+    static int getBucket(int textLength) {
+        int exp = 32 - Integer.numberOfLeadingZeros(Math.max(0, textLength - 1));
+        return Math.max(0, Math.min(MAX_BUCKET_EXP, exp) - MIN_BUCKET_EXP);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for(int i = 0; i < latencies.length; i++){
+            Histogram histogram = latencies[i].getHistogram();
+            if(histogram.getCount() > 0){
+                if(sb.length() > 1){
+                    sb.append(", ");
+                }
+                sb.append("<=").append(1 << (i + MIN_BUCKET_EXP)).append(" chars: ").append(histogram);
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of concurrent requests to the <i>MachineLinking</i>
+ * service. Requests over the limit wait in a bounded queue for up to the
+ * configured timeout. Requests that find the queue full or that time out
+ * are rejected.<p>
+ * Usage:<pre>
+ *   if(bulkhead.acquire()){
+ *       try {
+ *           //send the request
+ *       } finally {
+ *           bulkhead.release();
+ *       }
+ *   } else {
+ *       //reject the request
+ *   }
+ * </pre>
+ */
+class Bulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long timeout;
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    /**
+     * The time (in micro seconds) requests waited for a permit
+     */
+    private final Histogram waitTime = new Histogram("us");
+
+    /**
+     * Creates a new bulkhead
+     * @param maxConcurrent the maximum number of concurrent requests
+     * @param maxQueued the maximum number of requests waiting for a permit.
+     * If <code>0</code> requests over the limit are rejected immediately
+     * @param timeout the maximum time in milliseconds a request waits for a
+     * permit
+     */
+    public Bulkhead(int maxConcurrent, int maxQueued, long timeout) {
+        if(maxConcurrent < 1){
+            throw new IllegalArgumentException("The maximum number of concurrent requests MUST BE > 0 (parsed: "
+                    + maxConcurrent + ")!");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.timeout = Math.max(0, timeout);
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Acquires a permit for a request. If no permit is available the caller
+     * waits in the queue.
+     * @return <code>true</code> if the request may be sent. <code>false</code>
+     * if it was rejected because the queue is full or the timeout has expired.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean acquire() throws InterruptedException {
+        if(permits.tryAcquire()){
+            waitTime.record(0);
+            return true;
+        }
+        if(queued.incrementAndGet() > maxQueued){
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if(permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)){
+                waitTime.record((System.nanoTime() - start) / 1000);
+                return true;
+            } else {
+                timedOut.incrementAndGet();
+                return false;
+            }
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Releases a permit acquired by {@link #acquire()}
+     */
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * The number of requests currently sent
+     * @return the number of active requests
+     */
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * The number of requests currently waiting for a permit
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * The number of requests rejected because the queue was full
+     * @return the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * The number of requests rejected because they have not got a permit
+     * within the timeout
+     * @return the number of timed out requests
+     */
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * The time requests waited for a permit
+     * @return the histogram of the wait times in micro seconds
+     */
+    public Histogram getWaitTime() {
+        return waitTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[active: %d/%d, queued: %d/%d, rejected: %d, timed out: %d, wait: %s]",
+            getActiveCount(), maxConcurrent, getQueueDepth(), maxQueued, 
+            getRejectedCount(), getTimedOutCount(), waitTime);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.stanbol.enhancer.servicesapi.EngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for requests to the <i>MachineLinking</i> service.<p>
+ * While {@link State#CLOSED closed} the outcome of the last 
+ * <code>windowSize</code> requests is tracked. If the failure rate reaches
+ * the configured threshold the circuit {@link State#OPEN opens} and requests
+ * fail immediately with a {@link CircuitOpenException}. After the open
+ * duration the circuit becomes {@link State#HALF_OPEN half-open} and a
+ * single probe request is sent. If it succeeds the circuit closes otherwise
+ * it opens again. Only the outcome of the probe changes the state of a
+ * half-open circuit. Outcomes of requests sent before the circuit opened are
+ * ignored.<p>
+ * Requests rejected locally (an {@link EngineException} e.g. by the
+ * {@link Bulkhead} or {@link RateLimiter}), interrupted requests and throttled
+ * requests are neither counted as success nor as failure.
+ */
+class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRate;
+    private final long openDuration;
+    /**
+     * The outcomes (<code>true</code> for failures) of the last requests
+     */
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    /**
+     * The token of requests sent while the circuit is closed. Replaced on
+     * every transition to {@link State#CLOSED}
+     */
+    private Object closedToken = new Object();
+    /**
+     * The token of the probe request in flight or <code>null</code> if none
+     */
+    private Object probe;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong halfOpened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a new circuit breaker
+     * @param name the name used for logging (typically the engine name)
+     * @param windowSize the number of requests used to calculate the failure rate
+     * @param failureRate the failure rate in percent (<code>1..100</code>) 
+     * opening the circuit
+     * @param openDuration the time in milliseconds the circuit stays open
+     * before a probe request is sent
+     */
+    public CircuitBreaker(String name, int windowSize, int failureRate, long openDuration) {
+        if(windowSize < 1){
+            throw new IllegalArgumentException("The window size MUST BE > 0 (parsed: "
+                    + windowSize + ")!");
+        }
+        if(failureRate < 1 || failureRate > 100){
+            throw new IllegalArgumentException("The failure rate MUST BE in the range [1..100] (parsed: "
+                    + failureRate + ")!");
+        }
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.failureRate = failureRate;
+        this.openDuration = Math.max(0, openDuration);
+    }
+
+    /**
+     * Executes the parsed request if the circuit is not open and records
+     * its outcome.
+     * @param request the request
+     * @return the result of the request
+     * @throws CircuitOpenException if the circuit is open
+     * @throws Exception the exception thrown by the request
+     */
+    public <T> T execute(Callable<T> request) throws Exception {
+        final Object token = allowRequest();
+        if(token == null){
+            throw new CircuitOpenException("Request to MachineLinking not sent by " + name 
+                + " because the circuit breaker is " + getState() + " (failure rate >= " 
+                + failureRate + "% of the last " + window.length + " requests, open duration: "
+                + openDuration + "ms)");
+        }
+        T result;
+        try {
+            result = request.call();
+        } catch (EngineException e) { //rejected locally
+            onIgnored(token);
+            throw e;
+        } catch (InterruptedException e) {
+            onIgnored(token);
+            throw e;
+        } catch (Exception e) {
+            if(Util.isThrottled(e)){ //the service is alive
+                onIgnored(token);
+            } else {
+                onFailure(token);
+            }
+            throw e;
+        } catch (Error e) {
+            onIgnored(token);
+            throw e;
+        }
+        onSuccess(token);
+        return result;
+    }
+
+    /**
+     * Checks if a request may be sent
+     * @return the token used to report the outcome of the request or 
+     * <code>null</code> if the request is rejected
+     */
+    synchronized Object allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return closedToken;
+            case OPEN:
+                if(System.currentTimeMillis() - openedAt >= openDuration){
+                    transition(State.HALF_OPEN);
+                    probe = new Object();
+                    return probe;
+                }
+                break;
+            case HALF_OPEN:
+                if(probe == null){
+                    probe = new Object();
+                    return probe;
+                }
+                break;
+        }
+        rejected.incrementAndGet();
+        return null;
+    }
+
+    synchronized void onSuccess(Object token) {
+        if(state == State.HALF_OPEN){
+            if(token == probe){
+                transition(State.CLOSED);
+            }
+        } else if(state == State.CLOSED && token == closedToken){
+            record(false);
+        }
+    }
+
+    synchronized void onFailure(Object token) {
+        if(state == State.HALF_OPEN){
+            if(token == probe){
+                transition(State.OPEN);
+            }
+        } else if(state == State.CLOSED && token == closedToken){
+            record(true);
+            if(windowCount == window.length && windowFailures * 100 >= failureRate * windowCount){
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    synchronized void onIgnored(Object token) {
+        if(state == State.HALF_OPEN && token == probe){ //allow an other probe
+            probe = null;
+        }
+    }
+
+    private void record(boolean failure) {
+        if(windowCount == window.length){
+            if(window[windowIndex]){
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if(failure){
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State newState) {
+        log.info("{} circuit breaker: {} -> {}", new Object[]{name, state, newState});
+        state = newState;
+        probe = null;
+        switch (newState) {
+            case OPEN:
+                opened.incrementAndGet();
+                openedAt = System.currentTimeMillis();
+                break;
+            case HALF_OPEN:
+                halfOpened.incrementAndGet();
+                break;
+            case CLOSED:
+                closed.incrementAndGet();
+                closedToken = new Object();
+                windowIndex = 0;
+                windowCount = 0;
+                windowFailures = 0;
+                break;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * The number of transitions to {@link State#OPEN}
+     * @return the count
+     */
+    public long getOpenedCount() {
+        return opened.get();
+    }
+
+    /**
+     * The number of transitions to {@link State#HALF_OPEN}
+     * @return the count
+     */
+    public long getHalfOpenedCount() {
+        return halfOpened.get();
+    }
+
+    /**
+     * The number of transitions from {@link State#HALF_OPEN} to {@link State#CLOSED}
+     * @return the count
+     */
+    public long getClosedCount() {
+        return closed.get();
+    }
+
+    /**
+     * The number of requests rejected while the circuit was not closed
+     * @return the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[state: %s, opened: %d, half-opened: %d, closed: %d, rejected: %d]",
+            getState(), getOpenedCount(), getHalfOpenedCount(), getClosedCount(), getRejectedCount());
+    }
+}
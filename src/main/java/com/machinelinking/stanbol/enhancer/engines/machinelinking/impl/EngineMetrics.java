@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the metrics of an engine instance and exposes them as MXBean
+ * named <code>com.machinelinking.stanbol.enhancer:type=EnhancementEngine,name={engine-name}</code>
+ * with the platform MBean server.
+ */
+class EngineMetrics implements EngineMetricsMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineMetrics.class);
+
+    static final String DOMAIN = "com.machinelinking.stanbol.enhancer";
+
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final Histogram remoteLatency = new Histogram("ms");
+    private final Histogram requestSize = new Histogram("chars");
+    private final Histogram responseSize = new Histogram("bytes");
+    private final Histogram writeTime = new Histogram("us");
+    private final Histogram lockWaitTime = new Histogram("us");
+    private final Histogram lockHoldTime = new Histogram("us");
+    private final Histogram keywords = new Histogram("");
+    private final Histogram topics = new Histogram("");
+    private final Histogram triples = new Histogram("");
+    private final ConcurrentMap<String,AtomicLong> errors = new ConcurrentHashMap<String,AtomicLong>();
+
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile Bulkhead bulkhead;
+    private volatile ResponseCache<?> cache;
+    private volatile Hedger hedger;
+    private volatile RateLimiter rateLimiter;
+
+    private ObjectName name;
+
+    /**
+     * Registers the metrics with the platform MBean server. Failures are
+     * logged and do not prevent the engine from working.
+     * @param engineName the name of the engine
+     */
+    public synchronized void register(String engineName) {
+        unregister();
+        try {
+            ObjectName name = createName(engineName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            this.name = name;
+        } catch (JMException e) {
+            log.warn("Unable to register metrics of engine " + engineName + " with JMX", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server
+     */
+    public synchronized void unregister() {
+        if(name != null){
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.warn("Unable to unregister metrics " + name + " from JMX", e);
+            }
+            name = null;
+        }
+    }
+
+    static ObjectName createName(String engineName) throws JMException {
+        return new ObjectName(DOMAIN + ":type=EnhancementEngine,name=" + ObjectName.quote(engineName));
+    }
+
+    /**
+     * Sets the circuit breaker of the engine
+     * @param circuitBreaker the circuit breaker or <code>null</code> if deactivated
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Sets the bulkhead of the engine
+     * @param bulkhead the bulkhead or <code>null</code> if deactivated
+     */
+    public void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * Sets the response cache of the engine
+     * @param cache the cache or <code>null</code> if deactivated
+     */
+    public void setCache(ResponseCache<?> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the hedger of the engine
+     * @param hedger the hedger or <code>null</code> if deactivated
+     */
+    public void setHedger(Hedger hedger) {
+        this.hedger = hedger;
+    }
+
+    /**
+     * Sets the rate limiter used by the engine
+     * @param rateLimiter the rate limiter or <code>null</code> if deactivated
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Records a call to the <i>MachineLinking</i> service
+     * @param textLength the length of the sent text
+     * @param latency the latency in milliseconds
+     * @param responseSize the estimated size of the response in bytes or
+     * <code>-1</code> if not known
+     */
+    public void recordRequest(int textLength, long latency, long responseSize) {
+        requestSize.record(textLength);
+        remoteLatency.record(latency);
+        if(responseSize >= 0){
+            this.responseSize.record(responseSize);
+        }
+    }
+
+    /**
+     * Records the time needed to write the enhancements of a content item
+     * @param lockWait the time waited for the write lock in micro seconds
+     * @param lockHold the time the write lock was held in micro seconds
+     * @param write the time needed to create and write the enhancements in micro seconds
+     */
+    public void recordWrite(long lockWait, long lockHold, long write) {
+        lockWaitTime.record(lockWait);
+        lockHoldTime.record(lockHold);
+        writeTime.record(write);
+    }
+
+    /**
+     * Records a processed content item
+     * @param keywords the number of keywords or <code>-1</code> if not applicable
+     * @param topics the number of topics or <code>-1</code> if not applicable
+     * @param triples the number of written triples
+     */
+    public void recordDocument(int keywords, int topics, int triples) {
+        documents.incrementAndGet();
+        if(keywords >= 0){
+            this.keywords.record(keywords);
+        }
+        if(topics >= 0){
+            this.topics.record(topics);
+        }
+        this.triples.record(triples);
+    }
+
+    /**
+     * Records a content item skipped because the circuit breaker was open
+     */
+    public void recordSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * Records a content item that could not be processed
+     * @param t the error
+     */
+    public void recordError(Throwable t) {
+        String type = t.getClass().getSimpleName();
+        AtomicLong count = errors.get(type);
+        if(count == null){
+            AtomicLong newCount = new AtomicLong();
+            count = errors.putIfAbsent(type, newCount);
+            if(count == null){
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return documents.get();
+    }
+
+    @Override
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    @Override
+    public Map<String,Long> getRemoteLatency() {
+        return snapshot(remoteLatency);
+    }
+
+    @Override
+    public Map<String,Long> getRequestSize() {
+        return snapshot(requestSize);
+    }
+
+    @Override
+    public Map<String,Long> getResponseSize() {
+        return snapshot(responseSize);
+    }
+
+    @Override
+    public Map<String,Long> getWriteTime() {
+        return snapshot(writeTime);
+    }
+
+    @Override
+    public Map<String,Long> getLockWaitTime() {
+        return snapshot(lockWaitTime);
+    }
+
+    @Override
+    public Map<String,Long> getLockHoldTime() {
+        return snapshot(lockHoldTime);
+    }
+
+    @Override
+    public Map<String,Long> getKeywordsPerDocument() {
+        return snapshot(keywords);
+    }
+
+    @Override
+    public Map<String,Long> getTopicsPerDocument() {
+        return snapshot(topics);
+    }
+
+    @Override
+    public Map<String,Long> getTriplesPerDocument() {
+        return snapshot(triples);
+    }
+
+    @Override
+    public Map<String,Long> getErrorCounts() {
+        Map<String,Long> counts = new TreeMap<String,Long>();
+        for(Map.Entry<String,AtomicLong> entry : errors.entrySet()){
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    @Override
+    public String getCircuitState() {
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        return circuitBreaker == null ? null : circuitBreaker.getState().name();
+    }
+
+    @Override
+    public Map<String,Long> getCircuitBreaker() {
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if(circuitBreaker == null){
+            return Collections.emptyMap();
+        }
+        Map<String,Long> stats = new LinkedHashMap<String,Long>();
+        stats.put("opened", circuitBreaker.getOpenedCount());
+        stats.put("halfOpened", circuitBreaker.getHalfOpenedCount());
+        stats.put("closed", circuitBreaker.getClosedCount());
+        stats.put("rejected", circuitBreaker.getRejectedCount());
+        return stats;
+    }
+
+    @Override
+    public Map<String,Long> getBulkhead() {
+        final Bulkhead bulkhead = this.bulkhead;
+        if(bulkhead == null){
+            return Collections.emptyMap();
+        }
+        Map<String,Long> stats = new LinkedHashMap<String,Long>();
+        stats.put("active", (long)bulkhead.getActiveCount());
+        stats.put("queued", (long)bulkhead.getQueueDepth());
+        stats.put("rejected", bulkhead.getRejectedCount());
+        stats.put("timedOut", bulkhead.getTimedOutCount());
+        return stats;
+    }
+
+    @Override
+    public Map<String,Long> getBulkheadWaitTime() {
+        final Bulkhead bulkhead = this.bulkhead;
+        return bulkhead == null ? Collections.<String,Long>emptyMap() : 
+            snapshot(bulkhead.getWaitTime());
+    }
+
+    @Override
+    public Map<String,Long> getCache() {
+        final ResponseCache<?> cache = this.cache;
+        if(cache == null){
+            return Collections.emptyMap();
+        }
+        Map<String,Long> stats = new LinkedHashMap<String,Long>();
+        stats.put("entries", (long)cache.size());
+        stats.put("bytes", cache.getBytes());
+        stats.put("hits", cache.getHitCount());
+        stats.put("misses", cache.getMissCount());
+        stats.put("evictions", cache.getEvictionCount());
+        stats.put("expirations", cache.getExpirationCount());
+        return stats;
+    }
+
+    @Override
+    public Map<String,Long> getHedging() {
+        final Hedger hedger = this.hedger;
+        if(hedger == null){
+            return Collections.emptyMap();
+        }
+        Map<String,Long> stats = new LinkedHashMap<String,Long>();
+        stats.put("requests", hedger.getRequestCount());
+        stats.put("hedged", hedger.getHedgedCount());
+        stats.put("won", hedger.getHedgeWinCount());
+        stats.put("budgetExceeded", hedger.getBudgetExceededCount());
+        return stats;
+    }
+
+    @Override
+    public Map<String,Long> getRateLimiter() {
+        final RateLimiter rateLimiter = this.rateLimiter;
+        if(rateLimiter == null){
+            return Collections.emptyMap();
+        }
+        Map<String,Long> stats = new LinkedHashMap<String,Long>();
+        stats.put("delayed", rateLimiter.getDelayedCount());
+        stats.put("rejected", rateLimiter.getRejectedCount());
+        stats.put("throttled", rateLimiter.getThrottledCount());
+        return stats;
+    }
+
+    private static Map<String,Long> snapshot(Histogram histogram) {
+        Map<String,Long> snapshot = new LinkedHashMap<String,Long>();
+        snapshot.put("count", histogram.getCount());
+        snapshot.put("mean", Math.round(histogram.getMean()));
+        snapshot.put("p50", histogram.getPercentile(0.5));
+        snapshot.put("p90", histogram.getPercentile(0.9));
+        snapshot.put("p99", histogram.getPercentile(0.99));
+        snapshot.put("max", histogram.getMax());
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[documents: %d, skipped: %d, remote latency: %s, write: %s, "
+            + "write lock wait: %s, hold: %s, errors: %s]", getDocumentCount(), getSkippedCount(),
+            remoteLatency, writeTime, lockWaitTime, lockHoldTime, getErrorCounts());
+    }
+}
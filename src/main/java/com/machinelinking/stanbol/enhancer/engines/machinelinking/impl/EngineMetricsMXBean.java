@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link EngineMetrics} registered for every
+ * <i>MachineLinking</i> engine. Histograms are represented as maps with the
+ * <code>count</code>, <code>mean</code>, <code>p50</code>, <code>p90</code>,
+ * <code>p99</code> and <code>max</code> values. The statistics of optional
+ * components (circuit breaker, bulkhead, cache, hedging and rate limiter)
+ * are empty if the component is deactivated.
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * @return the number of processed content items
+     */
+    long getDocumentCount();
+
+    /**
+     * @return the number of content items skipped without enhancements
+     * because the circuit breaker was open
+     */
+    long getSkippedCount();
+
+    /**
+     * @return the latency of calls to the <i>MachineLinking</i> service in milliseconds
+     */
+    Map<String,Long> getRemoteLatency();
+
+    /**
+     * @return the length of the texts sent to the <i>MachineLinking</i> service in chars
+     */
+    Map<String,Long> getRequestSize();
+
+    /**
+     * @return the estimated size of the responses of the <i>MachineLinking</i>
+     * service in bytes
+     */
+    Map<String,Long> getResponseSize();
+
+    /**
+     * @return the time needed to create and write the enhancements of a
+     * content item in micro seconds
+     */
+    Map<String,Long> getWriteTime();
+
+    /**
+     * @return the time waited for the write lock of a content item in micro seconds
+     */
+    Map<String,Long> getLockWaitTime();
+
+    /**
+     * @return the time the write lock of a content item was held in micro seconds
+     */
+    Map<String,Long> getLockHoldTime();
+
+    /**
+     * @return the number of keywords per content item
+     */
+    Map<String,Long> getKeywordsPerDocument();
+
+    /**
+     * @return the number of topics per content item
+     */
+    Map<String,Long> getTopicsPerDocument();
+
+    /**
+     * @return the number of triples written per content item
+     */
+    Map<String,Long> getTriplesPerDocument();
+
+    /**
+     * @return the number of failed content items by the simple name of the
+     * exception
+     */
+    Map<String,Long> getErrorCounts();
+
+    /**
+     * @return the state of the circuit breaker (<code>CLOSED</code>, 
+     * <code>OPEN</code> or <code>HALF_OPEN</code>) or <code>null</code> if
+     * deactivated
+     */
+    String getCircuitState();
+
+    /**
+     * @return the number of transitions of the circuit breaker to the 
+     * <code>opened</code>, <code>halfOpened</code> and <code>closed</code> 
+     * state and the number of <code>rejected</code> requests
+     */
+    Map<String,Long> getCircuitBreaker();
+
+    /**
+     * @return the number of <code>active</code> and <code>queued</code>
+     * requests of the bulkhead and the number of requests <code>rejected</code>
+     * because the queue was full or <code>timedOut</code> while queued
+     */
+    Map<String,Long> getBulkhead();
+
+    /**
+     * @return the time requests waited for the bulkhead in micro seconds
+     */
+    Map<String,Long> getBulkheadWaitTime();
+
+    /**
+     * @return the <code>entries</code>, <code>bytes</code>, <code>hits</code>,
+     * <code>misses</code>, <code>evictions</code> and <code>expirations</code>
+     * of the response cache (annotations or languages)
+     */
+    Map<String,Long> getCache();
+
+    /**
+     * @return the number of hedgeable <code>requests</code>, the number of
+     * <code>hedged</code> requests, the number of hedged requests that
+     * <code>won</code> and how often the <code>budgetExceeded</code>
+     */
+    Map<String,Long> getHedging();
+
+    /**
+     * @return the number of requests <code>delayed</code> and <code>rejected</code>
+     * by the rate limiter and the number of requests <code>throttled</code>
+     * by the service
+     */
+    Map<String,Long> getRateLimiter();
+
+}
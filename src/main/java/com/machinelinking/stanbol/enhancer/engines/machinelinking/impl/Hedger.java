@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when to send hedged requests. If a request has not answered within
+ * the configured percentile of the observed latencies of requests with
+ * similar text lengths a second identical request is sent and the first
+ * response wins (see {@link MLClient#call(java.util.concurrent.Callable, long, long, Hedger)}).<p>
+ * The number of hedged requests is capped by the maximum extra load ratio
+ * (e.g. <code>0.1</code> allows one hedged request per ten requests).
+ * Like for {@link AdaptiveDeadline} only recent latencies are considered.
+ */
+class Hedger {
+
+    private final double percentile;
+    private final double maxExtraLoad;
+    private final SlidingHistogram[] latencies;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetExceeded = new AtomicLong();
+
+    /**
+     * Creates a new instance
+     * @param percentile the percentile (<code>[0..1]</code>) of the observed
+     * latencies after that a hedged request is sent
+     * @param maxExtraLoad the maximum ratio of hedged requests
+     */
+    public Hedger(double percentile, double maxExtraLoad) {
+        if(percentile <= 0 || percentile > 1){
+            throw new IllegalArgumentException("The percentile MUST BE in the range (0..1] (parsed: "
+                    + percentile + ")!");
+        }
+        this.percentile = percentile;
+        this.maxExtraLoad = Math.max(0, maxExtraLoad);
+        this.latencies = new SlidingHistogram[AdaptiveDeadline.getBucket(Integer.MAX_VALUE) + 1];
+        for(int i = 0; i < latencies.length; i++){
+            latencies[i] = new SlidingHistogram("ms", AdaptiveDeadline.LATENCY_WINDOW);
+        }
+    }
+
+    /**
+     * Called for each request. Returns the delay after that a hedged request
+     * is sent.
+     * @param textLength the length of the text
+     * @return the delay in milliseconds or <code>-1</code> if not enough
+     * latencies where observed for texts with the parsed length
+     */
+    public long startRequest(int textLength) {
+        requests.incrementAndGet();
+        Histogram histogram = latencies[AdaptiveDeadline.getBucket(textLength)].getHistogram();
+        return histogram.getCount() < AdaptiveDeadline.MIN_SAMPLES ? -1 :
+            histogram.getPercentile(percentile);
+    }
+
+    /**
+     * Checks if an other hedged request is within the maximum extra load
+     * @return <code>true</code> if the hedged request may be sent
+     */
+    public boolean tryHedge() {
+        long current;
+        do {
+            current = hedged.get();
+            if(current + 1 > maxExtraLoad * requests.get()){
+                budgetExceeded.incrementAndGet();
+                return false;
+            }
+        } while(!hedged.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Called if a hedged request allowed by {@link #tryHedge()} was not sent
+     * because the I/O threads are saturated
+     */
+    public void hedgeRejected() {
+        hedged.decrementAndGet();
+    }
+
+    /**
+     * Called if the response of the hedged request was used
+     */
+    public void hedgeWon() {
+        hedgeWins.incrementAndGet();
+    }
+
+    /**
+     * Records the latency of a request
+     * @param textLength the length of the text
+     * @param latency the latency in milliseconds
+     */
+    public void record(int textLength, long latency) {
+        latencies[AdaptiveDeadline.getBucket(textLength)].record(latency);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    /**
+     * The number of hedged requests that answered before the original one
+     * @return the count
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * The number of hedged requests not sent because of the maximum extra load
+     * @return the count
+     */
+    public long getBudgetExceededCount() {
+        return budgetExceeded.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[requests: %d, hedged: %d, hedge wins: %d, budget exceeded: %d]",
+            getRequestCount(), getHedgedCount(), getHedgeWinCount(), getBudgetExceededCount());
+    }
+}
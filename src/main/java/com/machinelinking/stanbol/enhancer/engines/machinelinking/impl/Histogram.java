@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram for non negative <code>long</code> values (e.g.
+ * latencies or sizes). Values are recorded in exponential buckets with four
+ * sub-buckets per power of two. Percentiles are therefore approximations
+ * with a relative error of up to 25%.
+ */
+class Histogram {
+
+    /**
+     * Values lower as this are recorded in an own bucket
+     */
+    private static final int LINEAR_BUCKETS = 8;
+    private static final int SUB_BUCKETS = 4;
+    private static final int NUM_BUCKETS = LINEAR_BUCKETS + (63 - 3) * SUB_BUCKETS;
+
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates a new histogram
+     * @param unit the unit of recorded values (only used by {@link #toString()})
+     */
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as <code>0</code>
+     * @param value the value
+     */
+    public void record(long value) {
+        if(value < 0){
+            value = 0;
+        }
+        buckets.incrementAndGet(getBucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while(value > current && !max.compareAndSet(current, value)){
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long c = count.get();
+        return c == 0 ? 0 : sum.get() / (double)c;
+    }
+
+    /**
+     * Getter for the approximated percentile
+     * @param percentile the percentile in the range <code>[0..1]</code>
+     * @return the upper bound of the bucket containing the percentile or
+     * <code>0</code> if no value was recorded
+     */
+    public long getPercentile(double percentile) {
+        long c = count.get();
+        if(c == 0){
+            return 0;
+        }
+        long rank = (long)Math.ceil(Math.max(0, Math.min(1, percentile)) * c);
+        long seen = 0;
+        for(int i = 0; i < NUM_BUCKETS; i++){
+            seen = seen + buckets.get(i);
+            if(seen >= rank && seen > 0){
+                return Math.min(getUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int getBucket(long value) {
+        if(value < LINEAR_BUCKETS){
+            return (int)value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)((value >> (exp - 2)) & (SUB_BUCKETS - 1));
+        return LINEAR_BUCKETS + (exp - 3) * SUB_BUCKETS + sub;
+    }
+
+    static long getUpperBound(int bucket) {
+        if(bucket < LINEAR_BUCKETS){
+            return bucket;
+        }
+        int exp = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 3;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long upper = ((long)(SUB_BUCKETS + sub + 1) << (exp - 2)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[count: %d, mean: %.1f%s, p50: %d%s, p99: %d%s, max: %d%s]",
+            getCount(), getMean(), unit, getPercentile(0.5), unit, getPercentile(0.99), unit,
+            getMax(), unit);
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Embedded character trigram language detector used to avoid calls to the
+ * <i>MachineLinking</i> <b>/lang</b> endpoint for texts in one of the
+ * {@link #LANGUAGES languages} most commonly processed. The profiles are
+ * trained on the sample texts included as resources in
+ * <code>/langprofiles/{lang}.txt</code>.<p>
+ * The confidence combines the probability of the best language with the
+ * share of the trigrams of the text known by the profiles. So short texts
+ * and texts in languages without a profile get a low confidence and should
+ * be detected by the remote service instead. Texts in one of the
+ * {@link #REJECTED_LANGUAGES} closely related to the detected languages
+ * always get a confidence of <code>0</code>. The embedded profiles are
+ * small, so texts in those languages would otherwise be confused with
+ * a related language.<p>
+ * Instances are immutable and thread safe.
+ */
+final class LocalLanguageDetector {
+
+    /**
+     * The languages detected by the embedded profiles
+     */
+    static final String[] LANGUAGES = {"de", "en", "es", "fr", "it", "pt"};
+    /**
+     * Languages with an embedded profile that are only used to recognise
+     * texts that need to be sent to the remote service: Catalan, Galician,
+     * Luxembourgish and Dutch
+     */
+    static final String[] REJECTED_LANGUAGES = {"ca", "gl", "lb", "nl"};
+
+    /**
+     * Only the first chars of a text are used for the detection
+     */
+    static final int MAX_CHARS = 2048;
+    /**
+     * Texts with fewer trigrams get a confidence of <code>0</code>
+     */
+    static final int MIN_TRIGRAMS = 20;
+    /**
+     * The maximum number of trigrams considered as independent evidence.
+     * Limits the confidence for short texts.
+     */
+    private static final int MAX_EVIDENCE = 25;
+    /**
+     * The share of trigrams known by the best profile expected for texts in
+     * a language with a profile. The confidence is reduced quadratically for
+     * texts with a lower share (e.g. related languages without a profile).
+     */
+    private static final double MIN_COVERAGE = 0.8;
+
+    private final String[] languages;
+    /**
+     * If the language with the same index is rejected
+     */
+    private final boolean[] rejected;
+    /**
+     * The log probabilities of the trigrams for all languages
+     */
+    private final Map<String,double[]> logProbs;
+    /**
+     * The log probabilities of trigrams not included in a profile
+     */
+    private final double[] unknownLogProbs;
+
+    /**
+     * The result of a detection
+     */
+    static final class Detection {
+        private final String lang;
+        private final double confidence;
+
+        Detection(String lang, double confidence) {
+            this.lang = lang;
+            this.confidence = confidence;
+        }
+
+        public String getLang() {
+            return lang;
+        }
+
+        /**
+         * The confidence in the range <code>[0..1]</code>
+         * @return the confidence
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (confidence: %.3f)", lang, confidence);
+        }
+    }
+
+    /**
+     * Creates a detector
+     * @param trainingTexts the training texts by language
+     * @param rejectedLanguages the languages of the training texts that are
+     * detected with a confidence of <code>0</code>
+     */
+    LocalLanguageDetector(Map<String,String> trainingTexts, Set<String> rejectedLanguages) {
+        if(trainingTexts.isEmpty()){
+            throw new IllegalArgumentException("The training texts MUST NOT be empty!");
+        }
+        languages = trainingTexts.keySet().toArray(new String[trainingTexts.size()]);
+        rejected = new boolean[languages.length];
+        for(int l = 0; l < languages.length; l++){
+            rejected[l] = rejectedLanguages.contains(languages[l]);
+        }
+        final Map<String,int[]> counts = new HashMap<String,int[]>();
+        int[] totals = new int[languages.length];
+        int i = 0;
+        for(String text : trainingTexts.values()){
+            final int l = i++;
+            totals[l] = extract(text, Integer.MAX_VALUE, new TrigramHandler() {
+                @Override
+                public void trigram(String trigram) {
+                    int[] count = counts.get(trigram);
+                    if(count == null){
+                        count = new int[languages.length];
+                        counts.put(trigram, count);
+                    }
+                    count[l]++;
+                }
+            });
+        }
+        //add one smoothing over all known trigrams
+        int vocabulary = counts.size();
+        logProbs = new HashMap<String,double[]>(counts.size() * 2);
+        for(Entry<String,int[]> entry : counts.entrySet()){
+            double[] p = new double[languages.length];
+            for(int l = 0; l < languages.length; l++){
+                p[l] = Math.log((entry.getValue()[l] + 1) / (double)(totals[l] + vocabulary));
+            }
+            logProbs.put(entry.getKey(), p);
+        }
+        unknownLogProbs = new double[languages.length];
+        for(int l = 0; l < languages.length; l++){
+            unknownLogProbs[l] = Math.log(1 / (double)(totals[l] + vocabulary));
+        }
+    }
+
+    /**
+     * Getter for the detector using the embedded profiles
+     * @return the detector
+     * @throws IllegalStateException if a profile is missing
+     */
+    public static LocalLanguageDetector getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Lazily loads the embedded profiles
+     */
+    private static final class InstanceHolder {
+        private static final LocalLanguageDetector INSTANCE = new LocalLanguageDetector(
+            loadTrainingTexts(), new HashSet<String>(Arrays.asList(REJECTED_LANGUAGES)));
+    }
+
+    private static Map<String,String> loadTrainingTexts() {
+        Map<String,String> texts = new LinkedHashMap<String,String>();
+        List<String> languages = new ArrayList<String>(Arrays.asList(LANGUAGES));
+        languages.addAll(Arrays.asList(REJECTED_LANGUAGES));
+        for(String lang : languages){
+            String resource = "/langprofiles/" + lang + ".txt";
+            InputStream in = LocalLanguageDetector.class.getResourceAsStream(resource);
+            if(in == null){
+                throw new IllegalStateException("Missing language profile " + resource + "!");
+            }
+            try {
+                Reader reader = new InputStreamReader(in, "UTF-8");
+                StringBuilder text = new StringBuilder();
+                char[] buffer = new char[4096];
+                for(int read = reader.read(buffer); read >= 0; read = reader.read(buffer)){
+                    text.append(buffer, 0, read);
+                }
+                texts.put(lang, text.toString());
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read language profile " + resource + "!", e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException e) { /* ignore */ }
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Detects the language of the parsed text. Only the first
+     * {@link #MAX_CHARS} chars are used. Texts with less than
+     * {@link #MIN_TRIGRAMS} trigrams and texts detected as one of the 
+     * rejected languages get a confidence of <code>0</code>.
+     * @param text the text
+     * @return the detected language or <code>null</code> if the text does
+     * not contain any letter
+     */
+    public Detection detect(String text) {
+        final double[] scores = new double[languages.length];
+        final int[] known = new int[languages.length + 1];
+        int count = extract(text, MAX_CHARS, new TrigramHandler() {
+            @Override
+            public void trigram(String trigram) {
+                double[] p = logProbs.get(trigram);
+                if(p != null){
+                    known[languages.length]++;
+                    for(int l = 0; l < p.length; l++){
+                        scores[l] = scores[l] + p[l];
+                        if(p[l] > unknownLogProbs[l]){
+                            known[l]++;
+                        }
+                    }
+                } //trigrams unknown to all profiles do not favour any language
+            }
+        });
+        if(count == 0){
+            return null;
+        }
+        int allKnown = known[languages.length];
+        if(allKnown == 0){
+            return new Detection(languages[0], 0);
+        }
+        //scale the log likelihoods to the limited evidence
+        double scale = Math.min(allKnown, MAX_EVIDENCE) / (double)allKnown;
+        int best = 0;
+        for(int l = 1; l < scores.length; l++){
+            if(scores[l] > scores[best]){
+                best = l;
+            }
+        }
+        double sum = 0;
+        for(int l = 0; l < scores.length; l++){
+            sum = sum + Math.exp((scores[l] - scores[best]) * scale);
+        }
+        //the share of trigrams of the text known by the best profile
+        double coverage = known[best] / (double)count;
+        if(count < MIN_TRIGRAMS || rejected[best]){
+            return new Detection(languages[best], 0);
+        }
+        double penalty = Math.min(1, coverage / MIN_COVERAGE);
+        return new Detection(languages[best], penalty * penalty / sum);
+    }
+
+    /**
+     * Callback for the trigrams of a text
+     */
+    private interface TrigramHandler {
+        void trigram(String trigram);
+    }
+
+    /**
+     * Extracts the trigrams of the words of the parsed text. Words are
+     * sequences of letters (lower cased) padded with a space at both ends.
+     * @return the number of trigrams
+     */
+    private static int extract(String text, int maxChars, TrigramHandler handler) {
+        int count = 0;
+        char a = ' ';
+        char b = ' ';
+        int length = Math.min(text.length(), maxChars);
+        for(int i = 0; i <= length; i++){
+            char c = i < length ? text.charAt(i) : ' ';
+            c = Character.isLetter(c) ? Character.toLowerCase(c) : ' ';
+            if(c == ' ' && b == ' '){
+                continue; //collapse white spaces
+            }
+            if(b != ' '){ //no trigrams spanning two words
+                handler.trigram(new String(new char[]{a, b, c}));
+                count++;
+            }
+            a = b;
+            b = c;
+        }
+        return count;
+    }
+}
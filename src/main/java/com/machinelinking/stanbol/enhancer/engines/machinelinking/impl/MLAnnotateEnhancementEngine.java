@@ -31,12 +31,23 @@ import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.RDFS_LABEL;
 import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.RDF_TYPE;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.clerezza.rdf.core.Language;
 import org.apache.clerezza.rdf.core.Literal;
@@ -44,6 +55,7 @@ import org.apache.clerezza.rdf.core.LiteralFactory;
 import org.apache.clerezza.rdf.core.MGraph;
 import org.apache.clerezza.rdf.core.UriRef;
 import org.apache.clerezza.rdf.core.impl.PlainLiteralImpl;
+import org.apache.clerezza.rdf.core.impl.SimpleMGraph;
 import org.apache.clerezza.rdf.core.impl.TripleImpl;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -51,9 +63,12 @@ import org.apache.felix.scr.annotations.ConfigurationPolicy;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyOption;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.stanbol.commons.stanboltools.offline.OnlineMode;
+import org.apache.stanbol.enhancer.nlp.model.AnalysedText;
+import org.apache.stanbol.enhancer.nlp.model.AnalysedTextUtils;
 import org.apache.stanbol.enhancer.servicesapi.ContentItem;
 import org.apache.stanbol.enhancer.servicesapi.EngineException;
 import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
@@ -67,15 +82,8 @@ import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.machinelinking.api.client.APIClient;
-import com.machinelinking.api.client.AnnotationResponse;
-import com.machinelinking.api.client.Clazz;
-import com.machinelinking.api.client.Cross;
-import com.machinelinking.api.client.Image;
 import com.machinelinking.api.client.Keyword;
-import com.machinelinking.api.client.NGram;
 import com.machinelinking.api.client.ParamsValidator;
-import com.machinelinking.api.client.Topic;
 import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
 
 /**
@@ -103,7 +111,50 @@ import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
             boolValue= MLConstants.DEFAUTL_PREF_ENGLISH_RESORUCE_URIS_STATE),
         @Property(name = MLConstants.INCLUDE_ENTITY_DATA, 
             boolValue=MLConstants.DEFAULT_INCLUDE_ENTITY_DATA_STATE),
-        @Property(name = MLConstants.TOPIC, boolValue=false)
+        @Property(name = MLConstants.TOPIC, boolValue=false),
+        @Property(name = MLConstants.ANNOTATION_CACHE_SIZE,
+            intValue = MLConstants.DEFAULT_ANNOTATION_CACHE_SIZE),
+        @Property(name = MLConstants.ANNOTATION_CACHE_MAX_BYTES,
+            intValue = MLConstants.DEFAULT_ANNOTATION_CACHE_MAX_BYTES),
+        @Property(name = MLConstants.ANNOTATION_CACHE_TTL,
+            intValue = MLConstants.DEFAULT_ANNOTATION_CACHE_TTL),
+        @Property(name = MLConstants.CHUNK_SIZE, intValue = MLConstants.DEFAULT_CHUNK_SIZE),
+        @Property(name = MLConstants.CHUNK_THREADS, intValue = MLConstants.DEFAULT_CHUNK_THREADS),
+        @Property(name = MLConstants.MAX_CONCURRENT_REQUESTS, 
+            intValue = MLConstants.DEFAULT_MAX_CONCURRENT_REQUESTS),
+        @Property(name = MLConstants.MAX_QUEUED_REQUESTS, 
+            intValue = MLConstants.DEFAULT_MAX_QUEUED_REQUESTS),
+        @Property(name = MLConstants.QUEUE_TIMEOUT, intValue = MLConstants.DEFAULT_QUEUE_TIMEOUT),
+        @Property(name = MLConstants.RATE_PER_SECOND, intValue = MLConstants.DEFAULT_RATE_PER_SECOND),
+        @Property(name = MLConstants.RATE_BURST, intValue = MLConstants.DEFAULT_RATE_BURST),
+        @Property(name = MLConstants.RATE_PER_DAY, intValue = MLConstants.DEFAULT_RATE_PER_DAY),
+        @Property(name = MLConstants.RATE_MAX_WAIT, intValue = MLConstants.DEFAULT_RATE_MAX_WAIT),
+        @Property(name = MLConstants.CIRCUIT_FAILURE_RATE, 
+            intValue = MLConstants.DEFAULT_CIRCUIT_FAILURE_RATE),
+        @Property(name = MLConstants.CIRCUIT_WINDOW_SIZE, 
+            intValue = MLConstants.DEFAULT_CIRCUIT_WINDOW_SIZE),
+        @Property(name = MLConstants.CIRCUIT_OPEN_DURATION, 
+            intValue = MLConstants.DEFAULT_CIRCUIT_OPEN_DURATION),
+        @Property(name = MLConstants.CIRCUIT_SKIP, boolValue = MLConstants.DEFAULT_CIRCUIT_SKIP),
+        @Property(name = MLConstants.DEADLINE_FACTOR, 
+            doubleValue = MLConstants.DEFAULT_DEADLINE_FACTOR),
+        @Property(name = MLConstants.DEADLINE_PERCENTILE, 
+            doubleValue = MLConstants.DEFAULT_DEADLINE_PERCENTILE),
+        @Property(name = MLConstants.DEADLINE_MIN, intValue = MLConstants.DEFAULT_DEADLINE_MIN),
+        @Property(name = MLConstants.DEADLINE_MAX, intValue = MLConstants.DEFAULT_DEADLINE_MAX),
+        @Property(name = MLConstants.HEDGE_PERCENTILE, 
+            doubleValue = MLConstants.DEFAULT_HEDGE_PERCENTILE),
+        @Property(name = MLConstants.HEDGE_MAX_EXTRA_LOAD, 
+            doubleValue = MLConstants.DEFAULT_HEDGE_MAX_EXTRA_LOAD),
+        @Property(name = MLConstants.BATCH_MAX_TEXT_LENGTH, 
+            intValue = MLConstants.DEFAULT_BATCH_MAX_TEXT_LENGTH),
+        @Property(name = MLConstants.BATCH_MAX_LENGTH, intValue = MLConstants.DEFAULT_BATCH_MAX_LENGTH),
+        @Property(name = MLConstants.BATCH_MAX_WAIT, intValue = MLConstants.DEFAULT_BATCH_MAX_WAIT),
+        @Property(name = MLConstants.OUTPUT_PROFILE, 
+            value = MLConstants.DEFAULT_OUTPUT_PROFILE, options = {
+                @PropertyOption(name = "full", value = "%ml.outputProfile.option.full"),
+                @PropertyOption(name = "compact", value = "%ml.outputProfile.option.compact"),
+                @PropertyOption(name = "minimal", value = "%ml.outputProfile.option.minimal")})
 })
 public class MLAnnotateEnhancementEngine extends
         AbstractEnhancementEngine<IOException, RuntimeException> implements EnhancementEngine, ServiceProperties {
@@ -151,9 +202,9 @@ public class MLAnnotateEnhancementEngine extends
     /**
      * Holds special mappings from the <a herf="http://www.airpedia.org/topic.txt">Airpedia topics</a>
      * to DBPedia resources. For all the other the rules as implemented by
-     * {@link #createDbpediaTopicUri(Topic)} apply.<p>
+     * {@link #createDbpediaTopicUri(String)} apply.<p>
      * This assumes the <code>topic.txt</code> version as included in this jar file as resource.
-     * @see #createDbpediaTopicUri(Topic)
+     * @see #createDbpediaTopicUri(String)
      */
     private static final Map<String,UriRef> SPECIAL_TOPIC_MAPPINGS;
 
@@ -165,6 +216,29 @@ public class MLAnnotateEnhancementEngine extends
         SPECIAL_TOPIC_MAPPINGS = Collections.unmodifiableMap(mappings);
     }
     
+    /**
+     * The maximum number of {@link UriRef}s interned by each of the
+     * {@link #RESOURCE_URIS}, {@link #TYPE_URIS} and {@link #TOPIC_URIS} caches.
+     */
+    private static final int URI_CACHE_SIZE = 200000;
+    /**
+     * Interns the DBPedia resource URIs created for keywords. Shared by all
+     * instances as the URIs only depend on the {@link ResourceKey}.
+     * @see #createDbpediaResourceURI(String, String, String)
+     */
+    private static final UriRefCache<ResourceKey> RESOURCE_URIS = 
+            new UriRefCache<ResourceKey>(URI_CACHE_SIZE);
+    /**
+     * Interns the DBPedia types created for Airpedia classes.
+     * @see #createDbpediaTypeUri(MLKeyword.Type)
+     */
+    private static final UriRefCache<String> TYPE_URIS = new UriRefCache<String>(URI_CACHE_SIZE);
+    /**
+     * Interns the DBPedia resources created for Airpedia topics.
+     * @see #createDbpediaTopicUri(String)
+     */
+    private static final UriRefCache<String> TOPIC_URIS = new UriRefCache<String>(URI_CACHE_SIZE);
+
     private static final UriRef RDFS_COMMENT = new UriRef(NamespaceEnum.rdfs + "comment");
 
     private static final String FOAF_NS = "http://xmlns.com/foaf/0.1/";
@@ -174,7 +248,7 @@ public class MLAnnotateEnhancementEngine extends
     /**
      * Internal MachineLinking client.
      */
-    private APIClient client;
+    private MLClient client;
 
     Map<String,Object> requestOptions;
     
@@ -184,6 +258,78 @@ public class MLAnnotateEnhancementEngine extends
      * should be generated for {@link Keyword}s returned by Machinelinking
      */
     private boolean keywordState;
+
+    /**
+     * Cache for annotation results or <code>null</code> if caching is
+     * deactivated
+     */
+    private ResponseCache<MLAnnotation> responseCache;
+
+    /**
+     * Coalesces concurrent requests for the same text and request options
+     */
+    private final RequestCoalescer<MLAnnotation> coalescer = new RequestCoalescer<MLAnnotation>();
+
+    /**
+     * The maximum number of chars sent to the <i>MachineLinking</i> service
+     * with a single request. If <code>&lt;= 0</code> texts are not split in chunks.
+     */
+    private int chunkSize;
+
+    /**
+     * Used to annotate chunks of long texts concurrently or <code>null</code>
+     * if chunking is deactivated
+     */
+    private ExecutorService chunkExecutor;
+
+    /**
+     * Limits the concurrent requests of this engine or <code>null</code> if
+     * not limited
+     */
+    private Bulkhead bulkhead;
+
+    /**
+     * The rate limiter shared with all engines using the same application id
+     * or <code>null</code> if requests are not rate limited
+     */
+    private RateLimiter rateLimiter;
+
+    /**
+     * Fails requests fast while <i>MachineLinking</i> is not available or
+     * <code>null</code> if deactivated
+     */
+    private CircuitBreaker circuitBreaker;
+    /**
+     * If content items are skipped while the {@link #circuitBreaker} is open
+     */
+    private boolean skipOnOpenCircuit;
+
+    /**
+     * Calculates the deadlines of requests or <code>null</code> if only the
+     * connection timeout applies
+     */
+    private AdaptiveDeadline deadline;
+
+    /**
+     * Sends hedged requests for slow requests or <code>null</code> if deactivated
+     */
+    private Hedger hedger;
+
+    /**
+     * Combines small texts to a single request or <code>null</code> if 
+     * batching is deactivated
+     */
+    private MicroBatcher batcher;
+
+    /**
+     * The triples written for the mentions of keywords
+     */
+    private OutputProfile outputProfile = OutputProfile.FULL;
+
+    /**
+     * Latencies, sizes and error counts exposed via JMX
+     */
+    private final EngineMetrics metrics = new EngineMetrics();
     
     /**
      * Default constructor used by OSGI. Expects {@link #activate(org.osgi.service.component.ComponentContext)}
@@ -216,7 +362,6 @@ public class MLAnnotateEnhancementEngine extends
                     nfe
             );
         }
-        this.client = new APIClient(appId, appKey, connTimeout);
         requestOptions = new HashMap<String,Object>();
         //we do not need the text to be sent in the response
         requestOptions.put(ParamsValidator.include_text, false);
@@ -262,13 +407,187 @@ public class MLAnnotateEnhancementEngine extends
         if(cat != null){
             requestOptions.put(MLConstants.CATEGORY.substring(3), cat);
         }
+        //parse the response cache configuration
+        Integer cacheSize = Util.getIngegerProperty(properties, MLConstants.ANNOTATION_CACHE_SIZE);
+        if(cacheSize == null){
+            cacheSize = MLConstants.DEFAULT_ANNOTATION_CACHE_SIZE;
+        }
+        if(cacheSize > 0){
+            Integer cacheBytes = Util.getIngegerProperty(properties, MLConstants.ANNOTATION_CACHE_MAX_BYTES);
+            Integer cacheTtl = Util.getIngegerProperty(properties, MLConstants.ANNOTATION_CACHE_TTL);
+            responseCache = new ResponseCache<MLAnnotation>(cacheSize, 
+                cacheBytes == null ? MLConstants.DEFAULT_ANNOTATION_CACHE_MAX_BYTES : cacheBytes,
+                (cacheTtl == null ? MLConstants.DEFAULT_ANNOTATION_CACHE_TTL : cacheTtl) * 1000L);
+        } else {
+            responseCache = null;
+        }
+        //parse the chunking configuration
+        Integer chunkSize = Util.getIngegerProperty(properties, MLConstants.CHUNK_SIZE);
+        this.chunkSize = chunkSize == null ? MLConstants.DEFAULT_CHUNK_SIZE : chunkSize;
+        if(this.chunkSize > 0){
+            Integer chunkThreads = Util.getIngegerProperty(properties, MLConstants.CHUNK_THREADS);
+            if(chunkThreads == null){
+                chunkThreads = MLConstants.DEFAULT_CHUNK_THREADS;
+            } else if(chunkThreads < 1){
+                throw new ConfigurationException(MLConstants.CHUNK_THREADS,
+                    "The number of threads used to annotate chunks MUST BE > 0 (configured: "
+                    + chunkThreads + ")!");
+            }
+            chunkExecutor = Executors.newFixedThreadPool(chunkThreads, 
+                Util.createThreadFactory(getName() + "-chunk"));
+        }
+        //parse the bulkhead configuration
+        Integer maxConcurrent = Util.getIngegerProperty(properties, MLConstants.MAX_CONCURRENT_REQUESTS);
+        if(maxConcurrent == null){
+            maxConcurrent = MLConstants.DEFAULT_MAX_CONCURRENT_REQUESTS;
+        }
+        if(maxConcurrent > 0){
+            Integer maxQueued = Util.getIngegerProperty(properties, MLConstants.MAX_QUEUED_REQUESTS);
+            Integer queueTimeout = Util.getIngegerProperty(properties, MLConstants.QUEUE_TIMEOUT);
+            bulkhead = new Bulkhead(maxConcurrent, 
+                maxQueued == null ? MLConstants.DEFAULT_MAX_QUEUED_REQUESTS : maxQueued,
+                queueTimeout == null ? MLConstants.DEFAULT_QUEUE_TIMEOUT : queueTimeout);
+        } else {
+            bulkhead = null;
+        }
+        circuitBreaker = Util.createCircuitBreaker(properties, getName());
+        deadline = Util.createAdaptiveDeadline(properties, connTimeout);
+        hedger = Util.createHedger(properties);
+        //parse the batching configuration
+        Integer batchTextLength = Util.getIngegerProperty(properties, MLConstants.BATCH_MAX_TEXT_LENGTH);
+        if(batchTextLength == null){
+            batchTextLength = MLConstants.DEFAULT_BATCH_MAX_TEXT_LENGTH;
+        }
+        if(batchTextLength > 0 && Boolean.TRUE.equals(requestOptions.get(ParamsValidator.topic))){
+            log.warn("{} does not batch texts as topics are requested for the whole text", getName());
+        } else if(batchTextLength > 0){
+            Integer batchLength = Util.getIngegerProperty(properties, MLConstants.BATCH_MAX_LENGTH);
+            if(batchLength == null){
+                batchLength = MLConstants.DEFAULT_BATCH_MAX_LENGTH;
+            }
+            if(batchLength < batchTextLength){
+                throw new ConfigurationException(MLConstants.BATCH_MAX_LENGTH, "The maximum length "
+                    + "of a batch MUST NOT be smaller as the maximum length of batched texts (batch: "
+                    + batchLength + ", text: " + batchTextLength + ")!");
+            }
+            Integer batchWait = Util.getIngegerProperty(properties, MLConstants.BATCH_MAX_WAIT);
+            batcher = new MicroBatcher(getName(), new MicroBatcher.Annotator() {
+                @Override
+                public MLAnnotation annotate(String text, Map<String,Object> options) throws Exception {
+                    return executeRequest(text, options);
+                }
+                @Override
+                public void annotated(String text, Map<String,Object> options, MLAnnotation annotation) {
+                    final ResponseCache<MLAnnotation> cache = responseCache;
+                    if(cache != null){
+                        cache.put(Util.createCacheKey(text, options), annotation, annotation.estimateSize());
+                    }
+                }
+            }, batchTextLength, batchLength, 
+            batchWait == null ? MLConstants.DEFAULT_BATCH_MAX_WAIT : batchWait);
+        }
+        Object profile = properties.get(MLConstants.OUTPUT_PROFILE);
+        try {
+            outputProfile = OutputProfile.parse(profile == null ? 
+                MLConstants.DEFAULT_OUTPUT_PROFILE : profile.toString());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(MLConstants.OUTPUT_PROFILE,
+                "Unsupported output profile '" + profile + "' (supported: "
+                + Arrays.toString(OutputProfile.values()) + ")!", e);
+        }
+        state = Util.getState(properties, MLConstants.CIRCUIT_SKIP);
+        skipOnOpenCircuit = state == null ? MLConstants.DEFAULT_CIRCUIT_SKIP : state;
+        //acquire the shared client and rate limiter as last step so that 
+        //they are not leaked on configuration errors
+        this.client = MLClientRegistry.acquire(appId, appKey, connTimeout);
+        this.rateLimiter = Util.acquireRateLimiter(properties, appId);
+        metrics.setCircuitBreaker(circuitBreaker);
+        metrics.setBulkhead(bulkhead);
+        metrics.setCache(responseCache);
+        metrics.setHedger(hedger);
+        metrics.setRateLimiter(rateLimiter);
+        metrics.register(getName());
     }
 
     @Deactivate
     protected void deactivate(ComponentContext ctx){
+        log.info("deactivate {} (metrics: {})", getName(), metrics);
+        metrics.unregister();
+        metrics.setCircuitBreaker(null);
+        metrics.setBulkhead(null);
+        metrics.setCache(null);
+        metrics.setHedger(null);
+        metrics.setRateLimiter(null);
+        if(responseCache != null){
+            log.info("deactivate {} (response cache: {})", getName(), responseCache);
+            responseCache = null;
+        }
+        if(chunkExecutor != null){
+            chunkExecutor.shutdownNow();
+            chunkExecutor = null;
+        }
+        if(bulkhead != null){
+            log.info("deactivate {} (bulkhead: {})", getName(), bulkhead);
+            bulkhead = null;
+        }
         requestOptions = null;
+        if(batcher != null){
+            log.info("deactivate {} (batching: {})", getName(), batcher);
+            batcher.close();
+            batcher = null;
+        }
+        if(hedger != null){
+            log.info("deactivate {} (hedging: {})", getName(), hedger);
+            hedger = null;
+        }
+        if(deadline != null){
+            log.info("deactivate {} (request latencies: {})", getName(), deadline);
+            deadline = null;
+        }
+        if(circuitBreaker != null){
+            log.info("deactivate {} (circuit breaker: {})", getName(), circuitBreaker);
+            circuitBreaker = null;
+        }
+        if(rateLimiter != null){
+            log.info("deactivate {} (rate limiter: {})", getName(), rateLimiter);
+            RateLimiter.release(rateLimiter);
+            rateLimiter = null;
+        }
+        MLClientRegistry.release(client);
         client = null;
     }
+
+    /**
+     * Getter for the response cache
+     * @return the response cache or <code>null</code> if caching is deactivated
+     */
+    ResponseCache<MLAnnotation> getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Getter for the metrics of this engine
+     * @return the metrics
+     */
+    EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Getter for the bulkhead limiting the concurrent requests
+     * @return the bulkhead or <code>null</code> if not limited
+     */
+    Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Getter for the circuit breaker
+     * @return the circuit breaker or <code>null</code> if deactivated
+     */
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
     
     /**
      * Check if the content can be enhanced
@@ -295,6 +614,7 @@ public class MLAnnotateEnhancementEngine extends
         try {
             text = Util.getInputText(ci);
         } catch (Exception e) {
+            metrics.recordError(e);
             throw new EngineException(this, ci, e);
         }
         Map<String, Object> options = new HashMap<String,Object>(requestOptions);
@@ -304,130 +624,414 @@ public class MLAnnotateEnhancementEngine extends
             options.put(ParamsValidator.lang, lang);
         } // else detect the language
 
-        final AnnotationResponse annotation;
+        final MLAnnotation annotation;
         long start = System.currentTimeMillis();
-		try {
-            annotation = this.client.annotate(text, options);
-		} catch (Exception e) {
-		    throw new EngineException(
+        try {
+            if(chunkSize > 0 && text.length() > chunkSize){
+                annotation = annotateChunks(ci, text, options, lang);
+            } else {
+                annotation = annotate(text, options);
+            }
+        } catch (CircuitOpenException e) {
+            if(skipOnOpenCircuit){
+                metrics.recordSkipped();
+                log.warn("skip {}: {}", ci.getUri(), e.getMessage());
+                return;
+            }
+            metrics.recordError(e);
+            throw e;
+        } catch (EngineException e) {
+            metrics.recordError(e);
+            throw e;
+        } catch (Exception e) {
+            metrics.recordError(e);
+            throw new EngineException(
                     "Error while calling the MachineLinking language annotation service.",
                     e
             );
         }
-		if(log.isDebugEnabled()){
+        if(log.isDebugEnabled()){
             log.debug(" - processed text with {} chars in {}ms", 
                 text.length(), System.currentTimeMillis()-start);
-		}
+        }
 		start = System.currentTimeMillis();
+		long writeStart = System.nanoTime();
+		//create the enhancements without holding the write lock
+		MGraph enhancements = new SimpleMGraph();
+		createStatements(ci, annotation, text, lang, enhancements);
+		long created = System.currentTimeMillis();
+		long lockRequested = System.nanoTime();
 		ci.getLock().writeLock().lock();
+		long lockAcquired = System.nanoTime();
         try {
-            createStatements(ci, annotation, text, lang, ci.getMetadata());
+            ci.getMetadata().addAll(enhancements);
         } finally {
             ci.getLock().writeLock().unlock();
+            long written = System.nanoTime();
+            metrics.recordWrite((lockAcquired - lockRequested) / 1000, 
+                (written - lockAcquired) / 1000, (written - writeStart) / 1000);
         }
+        metrics.recordDocument(keywordState ? annotation.getKeywords().size() : -1, 
+            annotation.getTopics().size(), enhancements.size());
         if(log.isDebugEnabled()){
-            log.debug(" - enhancements written in {}ms",
-                System.currentTimeMillis()-start);
+            log.debug(" - {} enhancements created in {}ms and written in {}ms", new Object[]{
+                enhancements.size(), created - start, System.currentTimeMillis() - created});
         }
     }
 
+    /**
+     * Annotates the parsed text. Responses are taken from the {@link #responseCache}
+     * if available. Small texts with a known language are batched with other
+     * texts if {@link #batcher batching} is enabled. Otherwise concurrent 
+     * requests for the same text and options are coalesced to a single call
+     * to the <i>MachineLinking</i> service executed by the calling thread.
+     * @param text the text
+     * @param options the request options. MUST NOT be modified afterwards
+     * @return the annotation
+     * @throws Exception on any error while calling the remote service
+     */
+    private MLAnnotation annotate(final String text, final Map<String,Object> options) throws Exception {
+        final String key = Util.createCacheKey(text, options);
+        MLAnnotation annotation = getCachedAnnotation(key, text);
+        if(annotation != null){
+            return annotation;
+        }
+        final MicroBatcher batcher = this.batcher;
+        if(batcher != null && options.get(ParamsValidator.lang) != null && batcher.isBatchable(text)){
+            return Util.getResult(batcher.submit(text, options));
+        }
+        return requestAnnotation(key, text, options);
+    }
+
+    private MLAnnotation getCachedAnnotation(String key, String text) {
+        final ResponseCache<MLAnnotation> cache = responseCache;
+        MLAnnotation annotation = cache == null ? null : cache.get(key);
+        if(annotation != null){
+            log.debug(" - use cached annotation response for text with {} chars", text.length());
+        }
+        return annotation;
+    }
+
+    /**
+     * Sends the annotation request to the <i>MachineLinking</i> service and
+     * caches the response. Concurrent requests with the same key are coalesced.
+     */
+    private MLAnnotation requestAnnotation(final String key, final String text, 
+            final Map<String,Object> options) throws Exception {
+        final ResponseCache<MLAnnotation> cache = responseCache;
+        return coalescer.execute(key, new Callable<MLAnnotation>() {
+            @Override
+            public MLAnnotation call() throws Exception {
+                MLAnnotation annotation = executeRequest(text, options);
+                if(cache != null){
+                    cache.put(key, annotation, annotation.estimateSize());
+                }
+                return annotation;
+            }
+        });
+    }
+
+    /**
+     * Sends the annotation request to the <i>MachineLinking</i> service 
+     * guarded by the {@link #circuitBreaker}
+     */
+    private MLAnnotation executeRequest(final String text, final Map<String,Object> options) throws Exception {
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if(circuitBreaker == null){
+            return sendAnnotationRequest(text, options);
+        } else {
+            return circuitBreaker.execute(new Callable<MLAnnotation>() {
+                @Override
+                public MLAnnotation call() throws Exception {
+                    return sendAnnotationRequest(text, options);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the annotation request to the <i>MachineLinking</i> service
+     * within the limits of the {@link #bulkhead} and the {@link #rateLimiter}
+     * @throws EngineException if the request was rejected by the bulkhead or
+     * the rate limiter
+     */
+    private MLAnnotation sendAnnotationRequest(String text, Map<String,Object> options) throws Exception {
+        final Bulkhead bulkhead = this.bulkhead;
+        if(bulkhead == null){
+            return sendRateLimited(text, options);
+        } else if(bulkhead.acquire()){
+            try {
+                return sendRateLimited(text, options);
+            } finally {
+                bulkhead.release();
+            }
+        } else {
+            throw new EngineException("Engine " + getName() + " rejected the request to "
+                + "MachineLinking because " + bulkhead.getMaxConcurrent() + " requests are "
+                + "in flight and " + bulkhead.getQueueDepth() + " are queued (max queued: " 
+                + bulkhead.getMaxQueued() + ", queue timeout: " + bulkhead.getTimeout() + "ms)");
+        }
+    }
+
+    private MLAnnotation sendRateLimited(String text, Map<String,Object> options) throws Exception {
+        final RateLimiter rateLimiter = this.rateLimiter;
+        if(rateLimiter == null){
+            return callAnnotate(text, options);
+        }
+        if(!rateLimiter.acquire()){
+            throw new EngineException("Engine " + getName() + " rejected the request to "
+                + "MachineLinking because the rate limit " + rateLimiter + " was not satisfied within "
+                + rateLimiter.getMaxWait() + "ms");
+        }
+        MLAnnotation annotation;
+        try {
+            annotation = callAnnotate(text, options);
+        } catch (IOException e) {
+            if(Util.isThrottled(e)){
+                rateLimiter.throttled();
+            }
+            throw e;
+        }
+        rateLimiter.succeeded();
+        return annotation;
+    }
+
+    /**
+     * Calls the <b>/annotate</b> endpoint. If {@link #deadline adaptive deadlines}
+     * are enabled the request is cancelled after the deadline for the length
+     * of the text. If {@link #hedger hedging} is enabled a second request is
+     * sent if the first one does not answer in time.
+     */
+    private MLAnnotation callAnnotate(final String text, final Map<String,Object> options) throws Exception {
+        final AdaptiveDeadline deadline = this.deadline;
+        final Hedger hedger = this.hedger;
+        long start = System.currentTimeMillis();
+        if(deadline == null && hedger == null){
+            MLAnnotation response = client.annotate(text, options);
+            metrics.recordRequest(text.length(), System.currentTimeMillis() - start, 
+                response.estimateSize());
+            return response;
+        }
+        long timeout = deadline == null ? Long.MAX_VALUE : deadline.getDeadline(text.length());
+        long hedgeDelay = hedger == null ? -1 : hedger.startRequest(text.length());
+        MLAnnotation response;
+        try {
+            response = client.call(new Callable<MLAnnotation>() {
+                @Override
+                public MLAnnotation call() throws Exception {
+                    return client.annotate(text, options);
+                }
+            }, timeout, hedgeDelay, hedger);
+        } catch (SocketTimeoutException e) {
+            if(deadline != null){
+                deadline.record(text.length(), timeout);
+            }
+            throw e;
+        }
+        long latency = System.currentTimeMillis() - start;
+        metrics.recordRequest(text.length(), latency, response.estimateSize());
+        if(deadline != null){
+            deadline.record(text.length(), latency);
+        }
+        if(hedger != null){
+            hedger.record(text.length(), latency);
+        }
+        return response;
+    }
+
+    /**
+     * Splits the parsed text at sentence boundaries in chunks of up to 
+     * {@link #chunkSize} chars and annotates them concurrently. Mentions are
+     * shifted to offsets of the whole text and keywords with the same sense
+     * page are merged.
+     * @param ci the content item used to lookup the {@link AnalysedText}
+     * @param text the text
+     * @param options the request options
+     * @param lang the language or <code>null</code> if not known
+     * @return the merged annotation
+     * @throws Exception on any error while calling the remote service
+     */
+    private MLAnnotation annotateChunks(ContentItem ci, final String text, 
+            final Map<String,Object> options, String lang) throws Exception {
+        AnalysedText at;
+        ci.getLock().readLock().lock();
+        try {
+            at = AnalysedTextUtils.getAnalysedText(ci);
+        } finally {
+            ci.getLock().readLock().unlock();
+        }
+        List<int[]> chunks = TextChunker.chunk(text, chunkSize, at, lang);
+        log.debug(" - split text with {} chars in {} chunks (sentences by {})", new Object[]{
+                text.length(), chunks.size(), at != null ? "AnalysedText" : "BreakIterator"});
+        List<int[]> annotatedChunks = new ArrayList<int[]>(chunks.size());
+        List<Future<MLAnnotation>> results = new ArrayList<Future<MLAnnotation>>(chunks.size());
+        for(final int[] chunk : chunks){
+            if(!Util.isBlank(text, chunk[0], chunk[1])){
+                annotatedChunks.add(chunk);
+                results.add(chunkExecutor.submit(new Callable<MLAnnotation>() {
+                    @Override
+                    public MLAnnotation call() throws Exception {
+                        return annotate(text.substring(chunk[0], chunk[1]), options).shift(chunk[0]);
+                    }
+                }));
+            }
+        }
+        List<MLAnnotation> annotations = new ArrayList<MLAnnotation>(results.size());
+        try {
+            for(Future<MLAnnotation> result : results){
+                annotations.add(Util.getResult(result));
+            }
+        } finally { //cancel remaining requests on errors
+            for(Future<MLAnnotation> result : results){
+                result.cancel(true);
+            }
+        }
+        if(lang == null){ //use the language detected for most of the chars
+            Map<String,Integer> langLength = new HashMap<String,Integer>();
+            int maxLength = -1;
+            for(int i = 0; i < annotations.size(); i++){
+                String chunkLang = annotations.get(i).getLang();
+                Integer length = langLength.get(chunkLang);
+                length = (length == null ? 0 : length) + annotatedChunks.get(i)[1] - annotatedChunks.get(i)[0];
+                langLength.put(chunkLang, length);
+                if(length > maxLength){
+                    maxLength = length;
+                    lang = chunkLang;
+                }
+            }
+        }
+        return MLAnnotation.merge(annotations, lang);
+    }
+
     /**
      * This generates annotation statements for the entities detected within the annotation.
      * For each entity a TextAnnotation and an EntityAnnotation are created. An EntityAnnotation
-     * can relate to several TextAnnotations.
+     * can relate to several TextAnnotations. Keywords resolving to the same
+     * DBPedia resource share a single EntityAnnotation and the entity data
+     * are written only once per resource.
      *
      * @param annotation the generated annotation.
      * @param text the annotated text
      * @param lang the language of the text or <code>null</code> if not known
-     * @param writer the statement writer.
+     * @param writer the statement writer. Enhancements are only written to this
+     * graph. Callers need to ensure thread safety if the metadata of the 
+     * {@link ContentItem} is parsed.
      */
-    protected void createStatements( ContentItem ci, AnnotationResponse annotation, 
+    protected void createStatements( ContentItem ci, MLAnnotation annotation, 
             String text, String lang, MGraph writer) {
         if(lang == null){ //ML has detected the language
             lang = annotation.getLang();
             // also write the language annotation
-            final UriRef textAnnotation = EnhancementEngineHelper.createTextEnhancement(ci, this);
+            final UriRef textAnnotation = EnhancementEngineHelper.createTextEnhancement(writer, this, ci.getUri());
             Util.addLanguageProperty(textAnnotation, writer, lang);
         } //else language was already known
         final Language textLang = new Language(lang);
 
         if(keywordState){
-    
-            for(Keyword keyword : annotation.getKeywords()) {
+            //consolidate keywords resolving to the same DBPedia resource. Label
+            //and type are taken from the keyword with the highest probability
+            Map<UriRef,MLKeyword> entities = new LinkedHashMap<UriRef,MLKeyword>();
+            for(MLKeyword keyword : annotation.getKeywords()) {
+                UriRef dbpediaResource = createDbpediaResourceURI(
+                    lang, keyword.getSensePage(),keyword.getEnglishPage());
+                MLKeyword current = entities.get(dbpediaResource);
+                if(current == null){
+                    entities.put(dbpediaResource, keyword);
+                } else {
+                    log.debug("> consolidate keyword '{}'({}) with '{}'({})", new Object[]{
+                        keyword.getForm(), keyword.getSensePage(), current.getForm(), current.getSensePage()});
+                    entities.put(dbpediaResource, current.getProbability() >= keyword.getProbability() ?
+                        current.merge(keyword) : keyword.merge(current));
+                }
+            }
+            Set<Long> mentionOffsets = new HashSet<Long>();
+            //index used to calculate the selection contexts of all mentions
+            final SelectionContextIndex contexts = outputProfile.isSelectionContext() ?
+                    new SelectionContextIndex(text, textLang) : null;
+            for(Entry<UriRef,MLKeyword> entity : entities.entrySet()) {
+                final MLKeyword keyword = entity.getValue();
+                final UriRef dbpediaResource = entity.getKey();
                 // Entity annotation.
                 log.debug("> keyword '{}'({})",keyword.getForm(), keyword.getSensePage());
-                final UriRef entityAnnotation = EnhancementEngineHelper.createEntityEnhancement(ci, this);
+                final UriRef entityAnnotation = EnhancementEngineHelper.createEntityEnhancement(writer, this, ci.getUri());
                 UriRef dcType = null;
                 Literal label = new PlainLiteralImpl(keyword.getForm(), textLang);
                 log.debug(" - label: {}",label);
                 writer.add(new TripleImpl(entityAnnotation, ENHANCER_ENTITY_LABEL, label));
-                UriRef dbpediaResource = createDbpediaResourceURI(
-                    lang, keyword.getSensePage(),keyword.getCrosses());
                 log.debug(" - dbpedia resource: {}",dbpediaResource);
                 writer.add(new TripleImpl(
                         entityAnnotation,
                         ENHANCER_ENTITY_REFERENCE,
                         dbpediaResource
                 ));
-                if (keyword.getClasses().length > 0) {
-                    Clazz type = keyword.getClasses()[0];
-                    log.debug(" - type:", type.getUrl());
+                if (!keyword.getTypes().isEmpty()) {
+                    MLKeyword.Type type = keyword.getTypes().get(0);
+                    log.debug(" - type: {}", type);
                     UriRef dbpediaType = createDbpediaTypeUri(type);
                     if(dbpediaType != null){
-                        log.debug(" - dbpedia type: ", dbpediaType);
+                        log.debug(" - dbpedia type: {}", dbpediaType);
                         writer.add(new TripleImpl(entityAnnotation, ENHANCER_ENTITY_TYPE, 
                             dbpediaType));
                         dcType = dbpediaType;
                     } else {
                         writer.add(new TripleImpl(entityAnnotation, ENHANCER_ENTITY_TYPE, 
-                            new UriRef(type.getUrl().toString())));
+                            new UriRef(type.getUrl())));
                     }
                 }
-                log.debug(" - probability:", keyword.getSenseProbability());
+                log.debug(" - probability: {}", keyword.getProbability());
                 writer.add(new TripleImpl(
                         entityAnnotation,
                         ENHANCER_CONFIDENCE,
                         literalFactory.createTypedLiteral(
-                                normalizeProbability((double) keyword.getSenseProbability())
+                                normalizeProbability(keyword.getProbability())
                         )
                 ));
                 // Single Ngram annotation.
-                for (NGram nGram : keyword.getNGrams()) {
-                    log.debug(" - NGram [start:{}, end:{}]", nGram.getStart(),nGram.getEnd());
-                    final UriRef ngramTextAnnotation = EnhancementEngineHelper.createTextEnhancement(ci, this);
+                mentionOffsets.clear();
+                for (MLKeyword.Mention mention : keyword.getMentions()) {
+                    if(!mentionOffsets.add(((long)mention.getStart() << 32) | mention.getEnd())){
+                        continue; //mentioned by an other keyword for the same resource
+                    }
+                    log.debug(" - NGram [start:{}, end:{}]", mention.getStart(),mention.getEnd());
+                    final UriRef ngramTextAnnotation = EnhancementEngineHelper.createTextEnhancement(writer, this, ci.getUri());
     
                     writer.add(new TripleImpl(entityAnnotation, DC_RELATION, ngramTextAnnotation));
                     writer.add(new TripleImpl(
                             ngramTextAnnotation,
                             ENHANCER_START,
-                            literalFactory.createTypedLiteral(nGram.getStart())
+                            literalFactory.createTypedLiteral(mention.getStart())
                     ));
                     writer.add(new TripleImpl(
                             ngramTextAnnotation,
                             ENHANCER_END,
-                            literalFactory.createTypedLiteral(nGram.getEnd())
+                            literalFactory.createTypedLiteral(mention.getEnd())
                     ));
     
-                    log.debug("   - form: {}",keyword.getForm());
+                    if(!outputProfile.isSelectedText()){
+                        continue;
+                    }
+                    log.debug("   - form: {}",mention.getForm());
                     writer.add(new TripleImpl(
                             ngramTextAnnotation,
                             ENHANCER_SELECTED_TEXT,
-                            //new PlainLiteralImpl(text.substring(nGram.getStart(), nGram.getEnd()), textLang)
-                            new PlainLiteralImpl(keyword.getForm(), textLang)
+                            //new PlainLiteralImpl(text.substring(mention.getStart(), mention.getEnd()), textLang)
+                            new PlainLiteralImpl(mention.getForm(), textLang)
                     ));
                     
                     if(dcType != null){
                         writer.add(new TripleImpl(ngramTextAnnotation, DC_TYPE, dcType));
                     }
-                    
-                    final String selectionContext = EnhancementEngineHelper.getSelectionContext(
-                            text, keyword.getForm(), nGram.getStart()
-                    );
+                    if(contexts == null){
+                        continue;
+                    }
+                    //the end is based on the form (as by EnhancementEngineHelper)
+                    final Literal selectionContext = contexts.getSelectionContextLiteral(
+                            mention.getStart(), mention.getStart() + mention.getForm().length());
                     log.debug("   - context: {}",selectionContext);
                     writer.add(new TripleImpl(
                             ngramTextAnnotation,
                             ENHANCER_SELECTION_CONTEXT,
-                            new PlainLiteralImpl( selectionContext, textLang)));
+                            selectionContext));
                 }
                 if(includeEntityData){
                     writeEntityInformation(writer,keyword, dbpediaResource,textLang);
@@ -435,43 +1039,47 @@ public class MLAnnotateEnhancementEngine extends
     
             }
         } //else do not write Stanbol Enhancements for Keywords
-        Topic[] topics = annotation.getTopics();
-        log.debug("> write {} Topics", topics == null ? 0 : topics.length);
-        if(topics != null && topics.length > 0){
+        List<MLTopic> topics = annotation.getTopics();
+        log.debug("> write {} Topics", topics.size());
+        if(!topics.isEmpty()){
             //add fise:TextAnnotation for the topic classifications
-            UriRef topicsAnno = EnhancementEngineHelper.createTextEnhancement(ci, this);
+            UriRef topicsAnno = EnhancementEngineHelper.createTextEnhancement(writer, this, ci.getUri());
             writer.add(new TripleImpl(topicsAnno, DC_TYPE, SKOS_CONCEPT));
-            for(Topic topic : topics){
-                if(topic != null){
-                    log.debug(" - {}[conf:{}]", topic.getUrl(), topic.getProbability());
-                    UriRef topicAnno = EnhancementEngineHelper.createTopicEnhancement(ci, this);
-                    writer.add(new TripleImpl(topicAnno, ENHANCER_ENTITY_TYPE, SKOS_CONCEPT));
-                    writer.add(new TripleImpl(topicAnno, ENHANCER_ENTITY_REFERENCE, 
-                        createDbpediaTopicUri(topic)));
-                    writer.add(new TripleImpl(topicAnno, ENHANCER_ENTITY_LABEL,
-                            new PlainLiteralImpl(topic.getLabel())));
-                    writer.add(new TripleImpl(topicAnno, ENHANCER_CONFIDENCE,
-                        literalFactory.createTypedLiteral(
-                            normalizeProbability((double) topic.getProbability()))));
-                    //finally link this TopicAnnotation to the TextAnnotation
-                    writer.add(new TripleImpl(topicAnno, DC_RELATION, topicsAnno));
-                }
+            for(MLTopic topic : topics){
+                log.debug(" - {}", topic);
+                UriRef topicAnno = EnhancementEngineHelper.createTopicEnhancement(writer, this, ci.getUri());
+                writer.add(new TripleImpl(topicAnno, ENHANCER_ENTITY_TYPE, SKOS_CONCEPT));
+                writer.add(new TripleImpl(topicAnno, ENHANCER_ENTITY_REFERENCE, 
+                    createDbpediaTopicUri(topic.getUrl())));
+                writer.add(new TripleImpl(topicAnno, ENHANCER_ENTITY_LABEL,
+                        new PlainLiteralImpl(topic.getLabel())));
+                writer.add(new TripleImpl(topicAnno, ENHANCER_CONFIDENCE,
+                    literalFactory.createTypedLiteral(
+                        normalizeProbability(topic.getProbability()))));
+                //finally link this TopicAnnotation to the TextAnnotation
+                writer.add(new TripleImpl(topicAnno, DC_RELATION, topicsAnno));
             }
         }
     }
 
     /**
-     * @param type
-     * @return
+     * Converts Airpedia types to DBpedia ontology types.
+     * @param type the type
+     * @return the DBpedia type or <code>null</code> if the parsed type is not
+     * an Airpedia type
      */
-    private UriRef createDbpediaTypeUri(Clazz type) {
-        String typeUri = type.getUrl().toString();
+    private UriRef createDbpediaTypeUri(MLKeyword.Type type) {
+        String typeUri = type.getUrl();
         UriRef dbpediaType;
-        if(type.getResource().equals("airpedia")){
-            //convert Airpedia type to dbpedia type
-            String localName = typeUri.substring(MLConstants.AIRPEDIA_CLASS_PREFIX.length());
-            dbpediaType = new UriRef(new StringBuilder(MLConstants.DBPEDIA_ONTOLOGY_PREFIX)
-            .append(localName).toString());
+        if("airpedia".equals(type.getResource())){
+            dbpediaType = TYPE_URIS.get(typeUri);
+            if(dbpediaType == null){
+                //convert Airpedia type to dbpedia type
+                String localName = typeUri.substring(MLConstants.AIRPEDIA_CLASS_PREFIX.length());
+                dbpediaType = TYPE_URIS.put(typeUri, new UriRef(
+                    new StringBuilder(MLConstants.DBPEDIA_ONTOLOGY_PREFIX)
+                    .append(localName).toString()));
+            }
             //DBpedia types are also used as dc:type value for the fise:TextAnnotation(s)
         } else { //no Airpedia type ... add the type as parsed
             dbpediaType = null;
@@ -479,9 +1087,6 @@ public class MLAnnotateEnhancementEngine extends
         return dbpediaType;
     }
 
-
-
-
     @Override
    	public Map<String, Object> getServiceProperties() {
    		return Collections.unmodifiableMap(Collections.singletonMap(ENHANCEMENT_ENGINE_ORDERING, (Object) defaultOrder));
@@ -500,31 +1105,36 @@ public class MLAnnotateEnhancementEngine extends
      * </ul>
      * @param lang the language. if <code>null</code> English is assumed
      * @param sensePage the sense Page (local name of the entity)
+     * @param englishPage the sense Page of the English Wikipedia or <code>null</code>
+     * if not available
      * @return the {@link UriRef} for the URI of the Entity
      */
-    private UriRef createDbpediaResourceURI(String lang, String sensePage, Cross[] crosses){
+    UriRef createDbpediaResourceURI(String lang, String sensePage, String englishPage){
         //if the language is English directly create the Entity URI based on the
-        //sensePage string
+        //sensePage string. For other languages try to create the English
+        //resource URI based on the crosses
+        final ResourceKey key;
         if(lang == null || "en".equalsIgnoreCase(lang)){
-            return new UriRef(new StringBuilder(MLConstants.DBPEDIA_RESOURCE_PREFIX)
-                .append(sensePage).toString());
-        }
-        //for other languages try to create the English resource URI based on the
-        //crosses (NOTE: would be better if this would be a Map with the language
-        //as key)
-        if(crosses != null){
-            for(Cross cross : crosses){
-                if("en".equalsIgnoreCase(cross.getLang())){
-                    return new UriRef(new StringBuilder(MLConstants.DBPEDIA_RESOURCE_PREFIX)
-                    .append(cross.getPage()).toString());
-                }
+            key = new ResourceKey(null, sensePage);
+        } else if(englishPage != null){
+            key = new ResourceKey(null, englishPage);
+        } else { //fall back to the language specific entity URI
+            key = new ResourceKey(lang.toLowerCase(Locale.ROOT), sensePage);
+        }
+        UriRef uri = RESOURCE_URIS.get(key);
+        if(uri == null){
+            if(key.lang == null){
+                uri = new UriRef(new StringBuilder(MLConstants.DBPEDIA_RESOURCE_PREFIX)
+                    .append(key.page).toString());
+            } else {
+                uri = new UriRef(new StringBuilder("http://")
+                    .append(key.lang).append('.')
+                    .append(DBPEDIA_RESOURCE_HOST_AND_PATH)
+                    .append(key.page).toString());
             }
+            uri = RESOURCE_URIS.put(key, uri);
         }
-        //fall back to the language specific entity URI
-        return new UriRef(new StringBuilder("http://")
-            .append(lang.toLowerCase(Locale.ROOT)).append('.')
-            .append(DBPEDIA_RESOURCE_HOST_AND_PATH)
-            .append(sensePage).toString());
+        return uri;
     }
     /**
      * Maps the Airpedia topic to a DBPedia Resource <p>
@@ -532,13 +1142,25 @@ public class MLAnnotateEnhancementEngine extends
      * because the assumption is that usually the resource in more useful as the
      * category concept.
      * 
-     * @param topic the Topic
+     * @param topicUrl the URL of the Airpedia topic
      * @return the DBPedia resource for the parsed topic
      */
-    private UriRef createDbpediaTopicUri(Topic topic) {
+    UriRef createDbpediaTopicUri(String topicUrl) {
+        UriRef topicUri = TOPIC_URIS.get(topicUrl);
+        if(topicUri == null){
+            topicUri = TOPIC_URIS.put(topicUrl, mapDbpediaTopicUri(topicUrl));
+        }
+        return topicUri;
+    }
+
+    /**
+     * Maps the URL of an Airpedia topic to the DBPedia resource.
+     * @see #createDbpediaTopicUri(String)
+     */
+    private static UriRef mapDbpediaTopicUri(String topicUrl) {
         //cut away the namespace (NOTE: this assumes that all topics us the
         //airpedia topic namespace)
-        String topicName = topic.getUrl().toString().substring(MLConstants.AIRPEDIA_TOPIC_PREFIX.length());
+        String topicName = topicUrl.substring(MLConstants.AIRPEDIA_TOPIC_PREFIX.length());
         //first check for a special mapping
         UriRef topicUri = SPECIAL_TOPIC_MAPPINGS.get(topicName);
         if(topicUri == null){ //normal mapping
@@ -555,13 +1177,13 @@ public class MLAnnotateEnhancementEngine extends
         return topicUri; 
     }
     
-    private void writeEntityInformation(MGraph writer, Keyword keyword, UriRef entity, Language lang) {
+    void writeEntityInformation(MGraph writer, MLKeyword keyword, UriRef entity, Language lang) {
         //The rdfs:label
         writer.add(new TripleImpl(entity, RDFS_LABEL, 
                 new PlainLiteralImpl(keyword.getForm(), lang)));
         //the rdf:type
-        for(Clazz type : keyword.getClasses()){
-            writer.add(new TripleImpl(entity, RDF_TYPE, new UriRef(type.getUrl().toString())));
+        for(MLKeyword.Type type : keyword.getTypes()){
+            writer.add(new TripleImpl(entity, RDF_TYPE, new UriRef(type.getUrl())));
             UriRef dbpediaType = createDbpediaTypeUri(type);
             if(dbpediaType != null){
                 writer.add(new TripleImpl(entity, RDF_TYPE, dbpediaType));
@@ -571,12 +1193,49 @@ public class MLAnnotateEnhancementEngine extends
             writer.add(new TripleImpl(entity, RDFS_COMMENT, 
                 new PlainLiteralImpl(keyword.getAbstract(),lang)));
         }
-        if(keyword.getImages() != null && keyword.getImages().length > 0){
-            Image image = keyword.getImages()[0];
-//            for(Image image : keyword.getImages()){
-            writer.add(new TripleImpl(entity, FOAF_DEPICTION, new UriRef(image.getImage().toString())));
-            writer.add(new TripleImpl(entity, FOAF_THUMBNAIL, new UriRef(image.getThumb().toString())));
-//            }
+        if(keyword.getImage() != null){
+            writer.add(new TripleImpl(entity, FOAF_DEPICTION, new UriRef(keyword.getImage())));
+        }
+        if(keyword.getThumbnail() != null){
+            writer.add(new TripleImpl(entity, FOAF_THUMBNAIL, new UriRef(keyword.getThumbnail())));
+        }
+    }
+
+    /**
+     * Key of the {@link MLAnnotateEnhancementEngine#RESOURCE_URIS} cache
+     */
+    private static final class ResourceKey {
+
+        /**
+         * The lower case language of the DBPedia version or <code>null</code>
+         * for the English DBPedia
+         */
+        private final String lang;
+        private final String page;
+        private final int hash;
+
+        ResourceKey(String lang, String page) {
+            this.lang = lang;
+            this.page = page;
+            this.hash = 31 * (lang == null ? 0 : lang.hashCode()) + page.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj){
+                return true;
+            }
+            if(!(obj instanceof ResourceKey)){
+                return false;
+            }
+            ResourceKey other = (ResourceKey)obj;
+            return hash == other.hash && page.equals(other.page) &&
+                    (lang == null ? other.lang == null : lang.equals(other.lang));
         }
     }
 
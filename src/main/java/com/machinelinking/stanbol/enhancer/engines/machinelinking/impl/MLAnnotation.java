@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.machinelinking.api.client.AnnotationResponse;
+import com.machinelinking.api.client.Keyword;
+import com.machinelinking.api.client.Topic;
+
+/**
+ * The annotation results of the <i>MachineLinking</i> service for a text.
+ * This holds the information of an {@link AnnotationResponse} as used by the
+ * {@link MLAnnotateEnhancementEngine}. In contrast to the {@link AnnotationResponse}
+ * this allows to shift offsets (e.g. for results of a chunk of the text) and to
+ * merge results of several requests.<p>
+ * Instances are immutable and can be safely shared (e.g. by the {@link ResponseCache}).
+ */
+class MLAnnotation {
+
+    /**
+     * The overhead in bytes assumed for every object by the
+     * {@link #estimateSize()} methods
+     */
+    static final int OBJECT_OVERHEAD = 32;
+
+    private final String lang;
+    private final List<MLKeyword> keywords;
+    private final List<MLTopic> topics;
+
+    /**
+     * Creates a new annotation
+     * @param lang the language of the text
+     * @param keywords the keywords
+     * @param topics the topics
+     */
+    public MLAnnotation(String lang, List<MLKeyword> keywords, List<MLTopic> topics) {
+        this.lang = lang;
+        this.keywords = keywords == null ? Collections.<MLKeyword>emptyList() :
+            Collections.unmodifiableList(keywords);
+        this.topics = topics == null ? Collections.<MLTopic>emptyList() :
+            Collections.unmodifiableList(topics);
+    }
+
+    /**
+     * Converts the {@link AnnotationResponse} as returned by the
+     * <i>MachineLinking</i> API client.
+     * @param response the response
+     * @return the annotation
+     */
+    public static MLAnnotation valueOf(AnnotationResponse response) {
+        List<MLKeyword> keywords = new ArrayList<MLKeyword>();
+        if(response.getKeywords() != null){
+            for(Keyword keyword : response.getKeywords()){
+                keywords.add(MLKeyword.valueOf(keyword));
+            }
+        }
+        List<MLTopic> topics = new ArrayList<MLTopic>();
+        if(response.getTopics() != null){
+            for(Topic topic : response.getTopics()){
+                if(topic != null){
+                    topics.add(MLTopic.valueOf(topic));
+                }
+            }
+        }
+        return new MLAnnotation(response.getLang(), keywords, topics);
+    }
+
+    /**
+     * Merges the annotations of several chunks of a text. The parsed
+     * annotations are expected to use offsets relative to the whole text
+     * (see {@link #shift(int)}). Keywords with the same sense page are merged
+     * to a single {@link MLKeyword} (see {@link MLKeyword#merge(MLKeyword)}).
+     * For topics the highest probability is used.
+     * @param chunks the annotations of the chunks
+     * @param lang the language of the text
+     * @return the merged annotation
+     */
+    public static MLAnnotation merge(List<MLAnnotation> chunks, String lang) {
+        Map<String,MLKeyword> keywords = new LinkedHashMap<String,MLKeyword>();
+        Map<String,MLTopic> topics = new LinkedHashMap<String,MLTopic>();
+        for(MLAnnotation chunk : chunks){
+            for(MLKeyword keyword : chunk.keywords){
+                MLKeyword current = keywords.get(keyword.getSensePage());
+                keywords.put(keyword.getSensePage(),
+                    current == null ? keyword : current.merge(keyword));
+            }
+            for(MLTopic topic : chunk.topics){
+                MLTopic current = topics.get(topic.getUrl());
+                if(current == null || current.getProbability() < topic.getProbability()){
+                    topics.put(topic.getUrl(), topic);
+                }
+            }
+        }
+        return new MLAnnotation(lang, new ArrayList<MLKeyword>(keywords.values()),
+            new ArrayList<MLTopic>(topics.values()));
+    }
+
+    /**
+     * The language of the annotated text
+     * @return the language
+     */
+    public String getLang() {
+        return lang;
+    }
+
+    public List<MLKeyword> getKeywords() {
+        return keywords;
+    }
+
+    public List<MLTopic> getTopics() {
+        return topics;
+    }
+
+    /**
+     * Creates a copy of this annotation with all mention offsets shifted by
+     * the parsed offset.
+     * @param offset the offset
+     * @return the shifted annotation
+     */
+    MLAnnotation shift(int offset) {
+        if(offset == 0){
+            return this;
+        }
+        List<MLKeyword> shifted = new ArrayList<MLKeyword>(keywords.size());
+        for(MLKeyword keyword : keywords){
+            shifted.add(keyword.shift(offset));
+        }
+        return new MLAnnotation(lang, shifted, topics);
+    }
+
+    /**
+     * Creates an annotation for the section <code>[start, end)</code> of the
+     * annotated text. Only keywords mentioned within the section are kept
+     * and mention offsets are relative to <code>start</code>. Mentions 
+     * crossing the borders of the section are dropped. Topics are not 
+     * included as they refer to the whole text.
+     * @param start the start of the section
+     * @param end the end of the section
+     * @return the annotation for the section
+     */
+    MLAnnotation slice(int start, int end) {
+        List<MLKeyword> sliced = new ArrayList<MLKeyword>();
+        for(MLKeyword keyword : keywords){
+            MLKeyword slicedKeyword = keyword.slice(start, end);
+            if(slicedKeyword != null){
+                sliced.add(slicedKeyword);
+            }
+        }
+        return new MLAnnotation(lang, sliced, Collections.<MLTopic>emptyList());
+    }
+
+    /**
+     * Estimates the memory used by this annotation. Strings are counted with
+     * two bytes per char and an fixed overhead is assumed for every object.
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        long size = OBJECT_OVERHEAD;
+        for(MLKeyword keyword : keywords){
+            size = size + keyword.estimateSize();
+        }
+        for(MLTopic topic : topics){
+            size = size + OBJECT_OVERHEAD + 2 * (topic.getUrl().length()
+                    + (topic.getLabel() == null ? 0 : topic.getLabel().length()));
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "MLAnnotation[lang: " + lang + ", keywords: " + keywords.size()
+                + ", topics: " + topics.size() + "]";
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.stanbol.enhancer.servicesapi.EngineException;
+
+import com.machinelinking.api.client.APIClient;
+import com.machinelinking.api.client.GuessedLanguageResponse;
+
+/**
+ * Client for the <i>MachineLinking</i> service used by the engines. Wraps
+ * the {@link APIClient} and allows to execute requests with a deadline and
+ * hedging.<p>
+ * As the transport of the {@link APIClient} is blocking such requests are
+ * executed by a pool of up to {@link #MAX_THREADS} I/O threads
+ * owned by this client. Threads are created on demand and terminated after
+ * being idle for a minute. If all threads are busy up to {@link #MAX_QUEUED}
+ * requests are queued. Further requests are rejected with an
+ * {@link EngineException} so that deadlines and hedging stay enforced under
+ * load.
+ * Instances are shared by the {@link MLClientRegistry}.<p>
+ * Requests executed by the I/O threads MUST NOT use {@link #call(Callable, long, long, Hedger)}
+ * as this would block two threads per request.
+ */
+class MLClient {
+
+    /**
+     * The maximum number of I/O threads
+     */
+    static final int MAX_THREADS = 32;
+    /**
+     * The maximum number of requests queued if all I/O threads are busy
+     */
+    static final int MAX_QUEUED = 128;
+
+    private final APIClient client;
+    private final ThreadPoolExecutor executor;
+
+    MLClient(APIClient client) {
+        this(client, MAX_THREADS, MAX_QUEUED);
+    }
+
+    MLClient(APIClient client, int maxThreads, int maxQueued) {
+        this.client = client;
+        this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, 
+            new ArrayBlockingQueue<Runnable>(maxQueued), Util.createThreadFactory("machinelinking-io"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Annotates the parsed text (<b>/annotate</b> endpoint)
+     * @param text the text
+     * @param options the request options
+     * @return the annotation
+     * @throws IOException on any error while calling the service
+     */
+    public MLAnnotation annotate(String text, Map<String,Object> options) throws IOException {
+        return MLAnnotation.valueOf(client.annotate(text, options));
+    }
+
+    /**
+     * Guesses the language of the parsed text (<b>/lang</b> endpoint)
+     * @param text the text
+     * @return the response
+     * @throws IOException on any error while calling the service
+     */
+    public GuessedLanguageResponse guessLanguage(String text) throws IOException {
+        return client.guessLanguage(text);
+    }
+
+    /**
+     * Executes a request composed of calls to this client (e.g. including
+     * cache lookups) by using the I/O threads of this client.
+     * @param request the request
+     * @return the future result. Fails with an {@link EngineException} if
+     * the request was rejected because the I/O threads are saturated or the
+     * client is closed
+     */
+    public <T> Future<T> submit(Callable<T> request) {
+        try {
+            return executor.submit(request);
+        } catch (RejectedExecutionException e) {
+            return Util.createFailedFuture(rejected(e));
+        }
+    }
+
+    /**
+     * Executes a request by using the I/O threads of this client and waits
+     * up to the parsed deadline for the result. If the deadline is exceeded
+     * the request is cancelled. The calling thread waits for the result and
+     * MUST therefore not be an I/O thread of this client.<p>
+     * NOTE: The {@link APIClient} can not abort a request. The I/O thread
+     * only gets available again after the response was received or the
+     * connection timeout has expired.
+     * @param request the request
+     * @param deadline the deadline in milliseconds
+     * @return the result
+     * @throws SocketTimeoutException if the deadline was exceeded
+     * @throws EngineException if the request was rejected because the I/O
+     * threads are saturated
+     * @throws Exception the exception thrown by the request
+     */
+    public <T> T call(Callable<T> request, long deadline) throws Exception {
+        return call(request, deadline, -1, null);
+    }
+
+    /**
+     * Executes a request by using the I/O threads of this client. If the 
+     * request has not completed after the hedge delay and the hedger allows 
+     * it a second identical request is sent. The first successful response
+     * is returned and the other request is cancelled. If the I/O threads are
+     * saturated no hedged request is sent.
+     * @param request the request. MUST BE idempotent
+     * @param deadline the deadline in milliseconds for the whole call
+     * @param hedgeDelay the delay in milliseconds for the hedged request or
+     * <code>&lt; 0</code> to not hedge the request
+     * @param hedger the hedger or <code>null</code> to not hedge the request
+     * @return the result
+     * @throws SocketTimeoutException if the deadline was exceeded
+     * @throws EngineException if the request was rejected because the I/O
+     * threads are saturated
+     * @throws Exception the exception thrown by the request (the last one
+     * if the hedged request has failed as well)
+     */
+    public <T> T call(Callable<T> request, long deadline, long hedgeDelay, Hedger hedger) throws Exception {
+        final BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<Future<T>>();
+        final List<Future<T>> requests = new ArrayList<Future<T>>(2);
+        final long start = System.nanoTime();
+        final long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadline);
+        final long hedgeNanos = TimeUnit.MILLISECONDS.toNanos(hedgeDelay);
+        try {
+            requests.add(submit(request, completed));
+        } catch (RejectedExecutionException e) {
+            throw rejected(e);
+        }
+        boolean hedgeDone = hedger == null || hedgeDelay < 0 || hedgeDelay >= deadline;
+        int pending = 1;
+        Exception failure = null;
+        try {
+            while(pending > 0){
+                long elapsed = System.nanoTime() - start;
+                long wait = deadlineNanos - elapsed;
+                if(!hedgeDone){
+                    wait = Math.min(wait, hedgeNanos - elapsed);
+                }
+                Future<T> done = wait > 0 ? completed.poll(wait, TimeUnit.NANOSECONDS) : completed.poll();
+                if(done == null){
+                    if(!hedgeDone){
+                        hedgeDone = true;
+                        if(hedger.tryHedge()){
+                            try {
+                                requests.add(submit(request, completed));
+                                pending++;
+                            } catch (RejectedExecutionException e) {
+                                hedger.hedgeRejected(); //saturated: wait for the first request
+                            }
+                        }
+                    } else if(System.nanoTime() - start >= deadlineNanos){
+                        throw new SocketTimeoutException("Request to MachineLinking exceeded the deadline of "
+                            + deadline + "ms");
+                    }
+                } else {
+                    pending--;
+                    try {
+                        T result = done.get();
+                        if(done != requests.get(0)){
+                            hedger.hedgeWon();
+                        }
+                        return result;
+                    } catch (ExecutionException e) {
+                        failure = Util.unwrap(e);
+                    }
+                }
+            }
+            throw failure;
+        } finally { //cancel the requests still pending
+            for(Future<T> future : requests){
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<T> submit(Callable<T> request, final BlockingQueue<Future<T>> completed) {
+        FutureTask<T> task = new FutureTask<T>(request) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    private EngineException rejected(RejectedExecutionException e) {
+        return new EngineException(executor.isShutdown() ? 
+                "The MachineLinking client is closed" :
+                "The MachineLinking client rejected the request because all " 
+                + executor.getMaximumPoolSize() + " I/O threads are busy and " 
+                + executor.getQueue().size() + " requests are queued", e);
+    }
+
+    /**
+     * Closes this client. Pending requests are completed but no
+     * new requests are accepted.
+     */
+    void close() {
+        executor.shutdown();
+    }
+}
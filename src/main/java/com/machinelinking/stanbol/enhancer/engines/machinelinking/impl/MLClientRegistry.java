@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.machinelinking.api.client.APIClient;
+
+/**
+ * Shares {@link MLClient} instances between all engine instances (and
+ * configurations of the annotation engine) using the same application
+ * credentials and connection timeout. Engines {@link #acquire(String, String, int)
+ * acquire} a client on activation and {@link #release(MLClient) release} it
+ * on deactivation. A client is closed as soon as it is no longer used
+ * by any engine.
+ */
+final class MLClientRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MLClientRegistry.class);
+
+    /**
+     * The shared clients by key
+     * @see #createKey(String, String, int)
+     */
+    private static final Map<String,SharedClient> clients = new HashMap<String,SharedClient>();
+
+    /**
+     * Creates the {@link MLClient}s shared by the registry
+     */
+    interface ClientFactory {
+        MLClient create(String appId, String appKey, int connTimeout);
+    }
+
+    /**
+     * Creates clients for the <i>MachineLinking</i> service
+     */
+    private static final ClientFactory DEFAULT_FACTORY = new ClientFactory() {
+        @Override
+        public MLClient create(String appId, String appKey, int connTimeout) {
+            return new MLClient(new APIClient(appId, appKey, connTimeout));
+        }
+    };
+
+    private static ClientFactory factory = DEFAULT_FACTORY;
+
+    private MLClientRegistry(){}
+
+    /**
+     * Sets the factory used to create new clients. Used by tests to replace
+     * the <i>MachineLinking</i> service with a stand-in. Clients already 
+     * shared are not affected.
+     * @param clientFactory the factory or <code>null</code> to reset to the
+     * default
+     */
+    static synchronized void setClientFactory(ClientFactory clientFactory) {
+        factory = clientFactory == null ? DEFAULT_FACTORY : clientFactory;
+    }
+
+    /**
+     * Acquires the shared client for the parsed configuration. Creates a new
+     * client if no engine is currently using one for this configuration.
+     * Each call MUST BE paired with a call to {@link #release(MLClient)}.
+     * @param appId the application id
+     * @param appKey the application key
+     * @param connTimeout the connection timeout
+     * @return the client
+     */
+    public static synchronized MLClient acquire(String appId, String appKey, int connTimeout) {
+        String key = createKey(appId, appKey, connTimeout);
+        SharedClient shared = clients.get(key);
+        if(shared == null){
+            log.debug("create MachineLinking client (appId: {}, timeout: {})", appId, connTimeout);
+            shared = new SharedClient(factory.create(appId, appKey, connTimeout));
+            clients.put(key, shared);
+        }
+        shared.references++;
+        return shared.client;
+    }
+
+    /**
+     * Releases a client acquired by {@link #acquire(String, String, int)}
+     * @param client the client. <code>null</code> is ignored
+     */
+    public static synchronized void release(MLClient client) {
+        if(client == null){
+            return;
+        }
+        for(Iterator<SharedClient> it = clients.values().iterator(); it.hasNext();){
+            SharedClient shared = it.next();
+            if(shared.client == client){
+                shared.references--;
+                if(shared.references <= 0){
+                    log.debug("close unused MachineLinking client");
+                    it.remove();
+                    shared.client.close();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * The number of currently shared clients
+     * @return the number of clients
+     */
+    static synchronized int size() {
+        return clients.size();
+    }
+
+    private static String createKey(String appId, String appKey, int connTimeout) {
+        return new StringBuilder(appId).append('\n').append(appKey)
+                .append('\n').append(connTimeout).toString();
+    }
+
+    private static final class SharedClient {
+        private final MLClient client;
+        private int references;
+
+        SharedClient(MLClient client) {
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.machinelinking.api.client.Clazz;
+import com.machinelinking.api.client.Cross;
+import com.machinelinking.api.client.Image;
+import com.machinelinking.api.client.Keyword;
+import com.machinelinking.api.client.NGram;
+
+/**
+ * A keyword detected by the <i>MachineLinking</i> service. This holds the
+ * information of a {@link Keyword} as used by the {@link MLAnnotateEnhancementEngine}.
+ * Instances are immutable.
+ */
+class MLKeyword {
+
+    private final String form;
+    private final String sensePage;
+    private final String englishPage;
+    private final double probability;
+    private final List<Type> types;
+    private final String _abstract;
+    private final String image;
+    private final String thumbnail;
+    private final List<Mention> mentions;
+
+    /**
+     * Creates a new keyword
+     * @param form the form
+     * @param sensePage the sense page (local name of the entity)
+     * @param englishPage the sense page of the English Wikipedia or <code>null</code>
+     * if not known
+     * @param probability the sense probability
+     * @param types the types
+     * @param _abstract the abstract or <code>null</code>
+     * @param image the image URL or <code>null</code>
+     * @param thumbnail the thumbnail URL or <code>null</code>
+     * @param mentions the mentions of this keyword within the text
+     */
+    public MLKeyword(String form, String sensePage, String englishPage, double probability,
+            List<Type> types, String _abstract, String image, String thumbnail,
+            List<Mention> mentions) {
+        this.form = form;
+        this.sensePage = sensePage;
+        this.englishPage = englishPage;
+        this.probability = probability;
+        this.types = types == null ? Collections.<Type>emptyList() :
+            Collections.unmodifiableList(types);
+        this._abstract = _abstract;
+        this.image = image;
+        this.thumbnail = thumbnail;
+        this.mentions = mentions == null ? Collections.<Mention>emptyList() :
+            Collections.unmodifiableList(mentions);
+    }
+
+    /**
+     * Converts the {@link Keyword} as returned by the <i>MachineLinking</i>
+     * API client.
+     * @param keyword the keyword
+     * @return the converted keyword
+     */
+    public static MLKeyword valueOf(Keyword keyword) {
+        String englishPage = null;
+        if(keyword.getCrosses() != null){
+            for(Cross cross : keyword.getCrosses()){
+                if("en".equalsIgnoreCase(cross.getLang())){
+                    englishPage = cross.getPage();
+                    break;
+                }
+            }
+        }
+        List<Type> types = new ArrayList<Type>();
+        if(keyword.getClasses() != null){
+            for(Clazz clazz : keyword.getClasses()){
+                types.add(new Type(clazz.getUrl().toString(), clazz.getResource()));
+            }
+        }
+        String image = null;
+        String thumbnail = null;
+        if(keyword.getImages() != null && keyword.getImages().length > 0){
+            Image img = keyword.getImages()[0];
+            image = img.getImage() == null ? null : img.getImage().toString();
+            thumbnail = img.getThumb() == null ? null : img.getThumb().toString();
+        }
+        List<Mention> mentions = new ArrayList<Mention>();
+        if(keyword.getNGrams() != null){
+            for(NGram nGram : keyword.getNGrams()){
+                mentions.add(new Mention(nGram.getStart(), nGram.getEnd(), keyword.getForm()));
+            }
+        }
+        return new MLKeyword(keyword.getForm(), keyword.getSensePage(), englishPage,
+            keyword.getSenseProbability(), types, keyword.getAbstract(), image, thumbnail,
+            mentions);
+    }
+
+    public String getForm() {
+        return form;
+    }
+
+    public String getSensePage() {
+        return sensePage;
+    }
+
+    /**
+     * The page of the English Wikipedia for this keyword (only available if the
+     * <code>cross</code> request parameter was enabled)
+     * @return the English page or <code>null</code> if not available
+     */
+    public String getEnglishPage() {
+        return englishPage;
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    public List<Type> getTypes() {
+        return types;
+    }
+
+    public String getAbstract() {
+        return _abstract;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    public List<Mention> getMentions() {
+        return mentions;
+    }
+
+    /**
+     * Creates a copy of this keyword with the parsed mentions
+     * @param mentions the mentions
+     * @return the copy
+     */
+    MLKeyword withMentions(List<Mention> mentions) {
+        return new MLKeyword(form, sensePage, englishPage, probability, types,
+            _abstract, image, thumbnail, mentions);
+    }
+
+    /**
+     * Creates a copy of this keyword with all mentions shifted by the parsed
+     * offset.
+     * @param offset the offset
+     * @return the shifted keyword
+     */
+    MLKeyword shift(int offset) {
+        if(offset == 0){
+            return this;
+        }
+        List<Mention> shifted = new ArrayList<Mention>(mentions.size());
+        for(Mention mention : mentions){
+            shifted.add(mention.shift(offset));
+        }
+        return withMentions(shifted);
+    }
+
+    /**
+     * Creates a copy of this keyword with the mentions within the section
+     * <code>[start, end)</code>. Offsets are relative to <code>start</code>.
+     * @param start the start of the section
+     * @param end the end of the section
+     * @return the keyword or <code>null</code> if not mentioned within the section
+     */
+    MLKeyword slice(int start, int end) {
+        List<Mention> sliced = null;
+        for(Mention mention : mentions){
+            if(mention.getStart() >= start && mention.getEnd() <= end){
+                if(sliced == null){
+                    sliced = new ArrayList<Mention>(mentions.size());
+                }
+                sliced.add(mention.shift(-start));
+            }
+        }
+        return sliced == null ? null : withMentions(sliced);
+    }
+
+    /**
+     * Merges this keyword with an other keyword for the same sense page. The
+     * merged keyword has the mentions of both keywords and the higher
+     * probability. Other information is taken from this keyword and only
+     * completed by the parsed one.
+     * @param other the other keyword
+     * @return the merged keyword
+     */
+    MLKeyword merge(MLKeyword other) {
+        List<Mention> merged = new ArrayList<Mention>(mentions.size() + other.mentions.size());
+        merged.addAll(mentions);
+        merged.addAll(other.mentions);
+        return new MLKeyword(form, sensePage,
+            englishPage != null ? englishPage : other.englishPage,
+            Math.max(probability, other.probability),
+            types.isEmpty() ? other.types : types,
+            _abstract != null ? _abstract : other._abstract,
+            image != null ? image : other.image,
+            thumbnail != null ? thumbnail : other.thumbnail,
+            merged);
+    }
+
+    /**
+     * Estimates the memory used by this keyword. Strings are counted with two
+     * bytes per char and an fixed overhead is assumed for every object.
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        long size = MLAnnotation.OBJECT_OVERHEAD + MLAnnotation.OBJECT_OVERHEAD * mentions.size();
+        size = size + 2 * (length(form) + length(sensePage) + length(englishPage)
+                + length(_abstract) + length(image) + length(thumbnail));
+        for(Type type : types){
+            size = size + MLAnnotation.OBJECT_OVERHEAD + 2 * (length(type.url) + length(type.resource));
+        }
+        return size;
+    }
+
+    private static int length(String value){
+        return value == null ? 0 : value.length();
+    }
+
+    @Override
+    public String toString() {
+        return form + "(" + sensePage + ")" + mentions;
+    }
+
+    /**
+     * A mention of a {@link MLKeyword} within the text
+     */
+    static final class Mention {
+
+        private final int start;
+        private final int end;
+        private final String form;
+
+        public Mention(int start, int end, String form) {
+            this.start = start;
+            this.end = end;
+            this.form = form;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * The form used as <code>fise:selected-text</code> for this mention
+         * @return the form
+         */
+        public String getForm() {
+            return form;
+        }
+
+        Mention shift(int offset) {
+            return new Mention(start + offset, end + offset, form);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + "," + end + "]";
+        }
+    }
+
+    /**
+     * A type of a {@link MLKeyword}. Holds the type URI and the name of the
+     * resource (e.g. <code>airpedia</code>) that defines the type.
+     */
+    static final class Type {
+
+        private final String url;
+        private final String resource;
+
+        public Type(String url, String resource) {
+            this.url = url;
+            this.resource = resource;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * The name of the resource defining this type
+         * @return the resource name or <code>null</code> if not known
+         */
+        public String getResource() {
+            return resource;
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+}
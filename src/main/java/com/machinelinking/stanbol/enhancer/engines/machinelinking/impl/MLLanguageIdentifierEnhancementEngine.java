@@ -17,9 +17,18 @@
 package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.clerezza.rdf.core.MGraph;
 import org.apache.clerezza.rdf.core.UriRef;
@@ -29,6 +38,7 @@ import org.apache.felix.scr.annotations.ConfigurationPolicy;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyOption;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.stanbol.commons.stanboltools.offline.OnlineMode;
@@ -40,8 +50,9 @@ import org.apache.stanbol.enhancer.servicesapi.helper.EnhancementEngineHelper;
 import org.apache.stanbol.enhancer.servicesapi.impl.AbstractEnhancementEngine;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.machinelinking.api.client.APIClient;
 import com.machinelinking.api.client.GuessedLanguageResponse;
 import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
 
@@ -64,7 +75,33 @@ import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
     @Property(name = EnhancementEngine.PROPERTY_NAME, value = "machinelinkingLangId"),
     @Property(name = MLConstants.APP_ID),
     @Property(name = MLConstants.APP_KEY),
-    @Property(name = MLConstants.CONNECTION_TIMEOUT, intValue=MLConstants.DEFAULT_CONNECTION_TIMEOUT)
+    @Property(name = MLConstants.CONNECTION_TIMEOUT, intValue=MLConstants.DEFAULT_CONNECTION_TIMEOUT),
+    @Property(name = MLConstants.LANGUAGE_CACHE_SIZE, intValue=MLConstants.DEFAULT_LANGUAGE_CACHE_SIZE),
+    @Property(name = MLConstants.LANGUAGE_CACHE_TTL, intValue=MLConstants.DEFAULT_LANGUAGE_CACHE_TTL),
+    @Property(name = MLConstants.LANGUAGE_SAMPLE_SIZE, intValue=MLConstants.DEFAULT_LANGUAGE_SAMPLE_SIZE),
+    @Property(name = MLConstants.LANGUAGE_SAMPLE_STRATEGY, 
+        value=MLConstants.DEFAULT_LANGUAGE_SAMPLE_STRATEGY, options={
+            @PropertyOption(name="head", value="%ml.langid.sampleStrategy.option.head"),
+            @PropertyOption(name="windows", value="%ml.langid.sampleStrategy.option.windows")}),
+    @Property(name = MLConstants.LANGUAGE_SAMPLE_WINDOWS, intValue=MLConstants.DEFAULT_LANGUAGE_SAMPLE_WINDOWS),
+    @Property(name = MLConstants.LANGUAGE_SAMPLE_MAJORITY_VOTE, 
+        boolValue=MLConstants.DEFAULT_LANGUAGE_SAMPLE_MAJORITY_VOTE),
+    @Property(name = MLConstants.LANGUAGE_LOCAL_CONFIDENCE, 
+        doubleValue=MLConstants.DEFAULT_LANGUAGE_LOCAL_CONFIDENCE),
+    @Property(name = MLConstants.RATE_PER_SECOND, intValue=MLConstants.DEFAULT_RATE_PER_SECOND),
+    @Property(name = MLConstants.RATE_BURST, intValue=MLConstants.DEFAULT_RATE_BURST),
+    @Property(name = MLConstants.RATE_PER_DAY, intValue=MLConstants.DEFAULT_RATE_PER_DAY),
+    @Property(name = MLConstants.RATE_MAX_WAIT, intValue=MLConstants.DEFAULT_RATE_MAX_WAIT),
+    @Property(name = MLConstants.CIRCUIT_FAILURE_RATE, intValue=MLConstants.DEFAULT_CIRCUIT_FAILURE_RATE),
+    @Property(name = MLConstants.CIRCUIT_WINDOW_SIZE, intValue=MLConstants.DEFAULT_CIRCUIT_WINDOW_SIZE),
+    @Property(name = MLConstants.CIRCUIT_OPEN_DURATION, intValue=MLConstants.DEFAULT_CIRCUIT_OPEN_DURATION),
+    @Property(name = MLConstants.CIRCUIT_SKIP, boolValue=MLConstants.DEFAULT_CIRCUIT_SKIP),
+    @Property(name = MLConstants.DEADLINE_FACTOR, doubleValue=MLConstants.DEFAULT_DEADLINE_FACTOR),
+    @Property(name = MLConstants.DEADLINE_PERCENTILE, doubleValue=MLConstants.DEFAULT_DEADLINE_PERCENTILE),
+    @Property(name = MLConstants.DEADLINE_MIN, intValue=MLConstants.DEFAULT_DEADLINE_MIN),
+    @Property(name = MLConstants.DEADLINE_MAX, intValue=MLConstants.DEFAULT_DEADLINE_MAX),
+    @Property(name = MLConstants.HEDGE_PERCENTILE, doubleValue=MLConstants.DEFAULT_HEDGE_PERCENTILE),
+    @Property(name = MLConstants.HEDGE_MAX_EXTRA_LOAD, doubleValue=MLConstants.DEFAULT_HEDGE_MAX_EXTRA_LOAD)
 })
 public class MLLanguageIdentifierEnhancementEngine extends AbstractEnhancementEngine<IOException, RuntimeException>
 implements EnhancementEngine, ServiceProperties {
@@ -89,7 +126,86 @@ implements EnhancementEngine, ServiceProperties {
     @Reference
     private OnlineMode onlineMode;
 
-	private APIClient client;
+	/**
+	 * The logger
+	 */
+	private static final Logger log = LoggerFactory.getLogger(MLLanguageIdentifierEnhancementEngine.class);
+
+	/**
+	 * The estimated size of a cached {@link GuessedLanguageResponse}. Only used
+	 * for statistics as the language cache is only bound by the number of entries.
+	 */
+	private static final int LANGUAGE_RESPONSE_SIZE = 64;
+
+	private MLClient client;
+
+	/**
+	 * The rate limiter shared with all engines using the same application id
+	 * or <code>null</code> if requests are not rate limited
+	 */
+	private RateLimiter rateLimiter;
+
+	/**
+	 * Fails requests fast while <i>MachineLinking</i> is not available or
+	 * <code>null</code> if deactivated
+	 */
+	private CircuitBreaker circuitBreaker;
+	/**
+	 * If content items are skipped while the {@link #circuitBreaker} is open
+	 */
+	private boolean skipOnOpenCircuit;
+
+	/**
+	 * Calculates the deadlines of requests or <code>null</code> if only the
+	 * connection timeout applies
+	 */
+	private AdaptiveDeadline deadline;
+
+	/**
+	 * Sends hedged requests for slow requests or <code>null</code> if deactivated
+	 */
+	private Hedger hedger;
+
+	/**
+	 * Latencies, sizes and error counts exposed via JMX
+	 */
+	private final EngineMetrics metrics = new EngineMetrics();
+
+	/**
+	 * Cache for {@link GuessedLanguageResponse}s or <code>null</code> if caching
+	 * is deactivated
+	 */
+	private ResponseCache<GuessedLanguageResponse> languageCache;
+
+	/**
+	 * Coalesces concurrent requests for the same text
+	 */
+	private final RequestCoalescer<GuessedLanguageResponse> coalescer =
+	        new RequestCoalescer<GuessedLanguageResponse>();
+
+	/**
+	 * The maximum number of bytes sent to the <b>/lang</b> endpoint or 
+	 * <code>0</code> to send the whole text
+	 */
+	private int sampleSize;
+	private TextSampler.Strategy sampleStrategy;
+	private int sampleWindows;
+	/**
+	 * If the language is guessed for each sampled window separately
+	 */
+	private boolean majorityVote;
+
+	/**
+	 * Detects the language of texts without calling the <b>/lang</b> endpoint
+	 * or <code>null</code> if deactivated
+	 */
+	private LocalLanguageDetector localDetector;
+	/**
+	 * The minimum confidence of languages detected by the {@link #localDetector}
+	 */
+	private double localConfidence;
+	private final AtomicLong localDetections = new AtomicLong();
+	private final AtomicLong remoteDetections = new AtomicLong();
 
 	@Override
 	@Activate
@@ -111,12 +227,93 @@ implements EnhancementEngine, ServiceProperties {
             );
         }
 
-        this.client = new APIClient(appId, appKey, connTimeout);
+        Integer cacheSize = Util.getIngegerProperty(properties, MLConstants.LANGUAGE_CACHE_SIZE);
+        if(cacheSize == null){
+            cacheSize = MLConstants.DEFAULT_LANGUAGE_CACHE_SIZE;
+        }
+        if(cacheSize > 0){
+            Integer cacheTtl = Util.getIngegerProperty(properties, MLConstants.LANGUAGE_CACHE_TTL);
+            languageCache = new ResponseCache<GuessedLanguageResponse>(cacheSize, 0,
+                (cacheTtl == null ? MLConstants.DEFAULT_LANGUAGE_CACHE_TTL : cacheTtl) * 1000L);
+        } else {
+            languageCache = null;
+        }
+        //parse the sampling configuration
+        Integer sampleSize = Util.getIngegerProperty(properties, MLConstants.LANGUAGE_SAMPLE_SIZE);
+        this.sampleSize = sampleSize == null ? MLConstants.DEFAULT_LANGUAGE_SAMPLE_SIZE : sampleSize;
+        Object strategy = properties.get(MLConstants.LANGUAGE_SAMPLE_STRATEGY);
+        try {
+            sampleStrategy = TextSampler.Strategy.parse(strategy == null ? 
+                MLConstants.DEFAULT_LANGUAGE_SAMPLE_STRATEGY : strategy.toString());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(MLConstants.LANGUAGE_SAMPLE_STRATEGY,
+                "Unsupported sample strategy '" + strategy + "' (supported: "
+                + Arrays.toString(TextSampler.Strategy.values()) + ")!", e);
+        }
+        Integer sampleWindows = Util.getIngegerProperty(properties, MLConstants.LANGUAGE_SAMPLE_WINDOWS);
+        this.sampleWindows = sampleWindows == null ? MLConstants.DEFAULT_LANGUAGE_SAMPLE_WINDOWS : sampleWindows;
+        Boolean majorityVote = Util.getState(properties, MLConstants.LANGUAGE_SAMPLE_MAJORITY_VOTE);
+        this.majorityVote = majorityVote == null ? MLConstants.DEFAULT_LANGUAGE_SAMPLE_MAJORITY_VOTE : majorityVote;
+        Double localConfidence = Util.getDoubleProperty(properties, MLConstants.LANGUAGE_LOCAL_CONFIDENCE);
+        this.localConfidence = localConfidence == null ? MLConstants.DEFAULT_LANGUAGE_LOCAL_CONFIDENCE : localConfidence;
+        if(this.localConfidence > 1){
+            throw new ConfigurationException(MLConstants.LANGUAGE_LOCAL_CONFIDENCE, 
+                "The confidence MUST BE in the range [0..1] (configured: " + this.localConfidence + ")!");
+        }
+        localDetector = this.localConfidence > 0 ? LocalLanguageDetector.getInstance() : null;
+        circuitBreaker = Util.createCircuitBreaker(properties, getName());
+        deadline = Util.createAdaptiveDeadline(properties, connTimeout);
+        hedger = Util.createHedger(properties);
+        Boolean skip = Util.getState(properties, MLConstants.CIRCUIT_SKIP);
+        skipOnOpenCircuit = skip == null ? MLConstants.DEFAULT_CIRCUIT_SKIP : skip;
+        //acquire the shared client and rate limiter as last step so that
+        //they are not leaked on configuration errors
+        this.client = MLClientRegistry.acquire(appId, appKey, connTimeout);
+        this.rateLimiter = Util.acquireRateLimiter(properties, appId);
+        metrics.setCircuitBreaker(circuitBreaker);
+        metrics.setCache(languageCache);
+        metrics.setHedger(hedger);
+        metrics.setRateLimiter(rateLimiter);
+        metrics.register(getName());
 	}
 	
 	@Override
 	@Deactivate
 	protected void deactivate(ComponentContext ce) {
+		log.info("deactivate {} (metrics: {})", getName(), metrics);
+		metrics.unregister();
+		metrics.setCircuitBreaker(null);
+		metrics.setCache(null);
+		metrics.setHedger(null);
+		metrics.setRateLimiter(null);
+		if(localDetector != null){
+		    log.info("deactivate {} (languages detected locally: {}, remote: {})", new Object[]{
+		        getName(), localDetections, remoteDetections});
+		    localDetector = null;
+		}
+		if(languageCache != null){
+		    log.info("deactivate {} (language cache: {})", getName(), languageCache);
+		    languageCache = null;
+		}
+		if(hedger != null){
+		    log.info("deactivate {} (hedging: {})", getName(), hedger);
+		    hedger = null;
+		}
+		if(deadline != null){
+		    log.info("deactivate {} (request latencies: {})", getName(), deadline);
+		    deadline = null;
+		}
+		if(circuitBreaker != null){
+		    log.info("deactivate {} (circuit breaker: {})", getName(), circuitBreaker);
+		    circuitBreaker = null;
+		}
+		if(rateLimiter != null){
+		    log.info("deactivate {} (rate limiter: {})", getName(), rateLimiter);
+		    RateLimiter.release(rateLimiter);
+		    rateLimiter = null;
+		}
+		MLClientRegistry.release(client);
+		client = null;
 		super.deactivate(ce);
 	}
 
@@ -131,29 +328,266 @@ implements EnhancementEngine, ServiceProperties {
         try {
             text = Util.getInputText(ci);
         } catch (Exception e) {
+            metrics.recordError(e);
             throw new EngineException(this, ci, e);
         }
 
-        final GuessedLanguageResponse guessedLanguage;
-		try {
-            guessedLanguage = this.client.guessLanguage(text);
-		} catch (Exception e) {
-		    throw new EngineException(
-                    "Error while calling the MachineLinking language identifier service.",
-                    e
-            );
+        String language = null;
+        double confidence = 1.0; //the MachineLinking service does not report a confidence
+        final LocalLanguageDetector localDetector = this.localDetector;
+        if(localDetector != null){
+            LocalLanguageDetector.Detection detection = localDetector.detect(text);
+            if(detection != null && detection.getConfidence() >= localConfidence){
+                log.debug("detected language {} locally", detection);
+                language = detection.getLang();
+                confidence = detection.getConfidence();
+                localDetections.incrementAndGet();
+            } else {
+                log.debug("local language detection {} below {}: call MachineLinking",
+                    detection, localConfidence);
+            }
+        }
+        if(language == null){
+            try {
+                remoteDetections.incrementAndGet();
+                if(sampleSize > 0){
+                    language = guessLanguage(TextSampler.sample(text, sampleSize, sampleStrategy, sampleWindows));
+                } else {
+                    language = guessLanguage(text).getLang();
+                }
+            } catch (CircuitOpenException e) {
+                if(skipOnOpenCircuit){
+                    metrics.recordSkipped();
+                    log.warn("skip {}: {}", ci.getUri(), e.getMessage());
+                    return;
+                }
+                metrics.recordError(e);
+                throw e;
+            } catch (EngineException e) {
+                metrics.recordError(e);
+                throw e;
+            } catch (Exception e) {
+                metrics.recordError(e);
+                throw new EngineException(
+                        "Error while calling the MachineLinking language identifier service.",
+                        e
+                );
+            }
         }
 
         MGraph g = ci.getMetadata();
+        long lockRequested = System.nanoTime();
         ci.getLock().writeLock().lock();
+        long lockAcquired = System.nanoTime();
+        int triples = g.size();
         try {
             UriRef textEnhancement = EnhancementEngineHelper.createTextEnhancement(ci, this);
-            Util.addLanguageProperty(textEnhancement, g, guessedLanguage.getLang());
+            Util.addLanguageProperty(textEnhancement, g, language, confidence);
+            triples = g.size() - triples;
         } finally {
             ci.getLock().writeLock().unlock();
+            long written = System.nanoTime();
+            metrics.recordWrite((lockAcquired - lockRequested) / 1000, 
+                (written - lockAcquired) / 1000, (written - lockRequested) / 1000);
         }
+        metrics.recordDocument(-1, -1, triples);
     }
 
+	/**
+	 * Guesses the language based on the parsed samples of the text. If 
+	 * {@link #majorityVote} is enabled the language is guessed for every sample
+	 * and the language guessed for most of the samples is returned. Otherwise
+	 * all samples are sent with a single request.
+	 * @param samples the samples
+	 * @return the guessed language
+	 * @throws Exception on any error while calling the remote service
+	 */
+	private String guessLanguage(List<String> samples) throws Exception {
+	    if(samples.size() == 1){
+	        return guessLanguage(samples.get(0)).getLang();
+	    } else if(!majorityVote){
+	        StringBuilder sample = new StringBuilder();
+	        for(String window : samples){
+	            sample.append(window).append('\n');
+	        }
+	        return guessLanguage(sample.toString()).getLang();
+	    }
+	    //send the requests for all windows concurrently
+	    List<Future<GuessedLanguageResponse>> results = 
+	            new ArrayList<Future<GuessedLanguageResponse>>(samples.size());
+	    for(String window : samples){
+	        results.add(guessLanguageAsync(window));
+	    }
+	    Map<String,Integer> votes = new HashMap<String,Integer>();
+	    String language = null;
+	    int maxVotes = 0;
+	    for(Future<GuessedLanguageResponse> result : results){
+	        String lang = Util.getResult(result).getLang();
+	        Integer count = votes.get(lang);
+	        count = count == null ? 1 : count + 1;
+	        votes.put(lang, count);
+	        if(count > maxVotes){ //on ties the language of the earlier window wins
+	            maxVotes = count;
+	            language = lang;
+	        }
+	    }
+	    log.debug("language votes: {} -> {}", votes, language);
+	    return language;
+	}
+
+	/**
+	 * Guesses the language of the parsed text. Responses are taken from the
+	 * {@link #languageCache} if available. Concurrent requests for the same
+	 * text are coalesced to a single call to the <i>MachineLinking</i> service.
+	 * @param text the text
+	 * @return the guessed language
+	 * @throws Exception on any error while calling the remote service
+	 */
+	private GuessedLanguageResponse guessLanguage(final String text) throws Exception {
+	    final String key = Util.createCacheKey(text, null);
+	    GuessedLanguageResponse guessedLanguage = getCachedLanguage(key, text);
+	    return guessedLanguage != null ? guessedLanguage : requestLanguage(key, text);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #guessLanguage(String)}. Cached responses
+	 * are returned as completed futures. Otherwise the request is executed by
+	 * the I/O threads of the {@link MLClient}. If {@link #deadline adaptive deadlines}
+	 * or {@link #hedger hedging} are enabled the request is executed by the
+	 * calling thread as {@link MLClient#call(Callable, long, long, Hedger)}
+	 * would otherwise block a second I/O thread.
+	 * @param text the text
+	 * @return the future response
+	 */
+	private Future<GuessedLanguageResponse> guessLanguageAsync(final String text) {
+	    final String key = Util.createCacheKey(text, null);
+	    GuessedLanguageResponse guessedLanguage = getCachedLanguage(key, text);
+	    if(guessedLanguage != null){
+	        return Util.createDoneFuture(guessedLanguage);
+	    }
+	    Callable<GuessedLanguageResponse> request = new Callable<GuessedLanguageResponse>() {
+	        @Override
+	        public GuessedLanguageResponse call() throws Exception {
+	            return requestLanguage(key, text);
+	        }
+	    };
+	    if(deadline != null || hedger != null){
+	        FutureTask<GuessedLanguageResponse> task = new FutureTask<GuessedLanguageResponse>(request);
+	        task.run();
+	        return task;
+	    }
+	    return client.submit(request);
+	}
+
+	private GuessedLanguageResponse getCachedLanguage(String key, String text) {
+	    final ResponseCache<GuessedLanguageResponse> cache = languageCache;
+	    GuessedLanguageResponse guessedLanguage = cache == null ? null : cache.get(key);
+	    if(guessedLanguage != null){
+	        log.debug("use cached language '{}' for text with {} chars",
+	            guessedLanguage.getLang(), text.length());
+	    }
+	    return guessedLanguage;
+	}
+
+	/**
+	 * Sends the request to the <b>/lang</b> endpoint and caches the response.
+	 * Concurrent requests for the same text are coalesced.
+	 */
+	private GuessedLanguageResponse requestLanguage(final String key, final String text) throws Exception {
+	    final ResponseCache<GuessedLanguageResponse> cache = languageCache;
+	    return coalescer.execute(key, new Callable<GuessedLanguageResponse>() {
+	        @Override
+	        public GuessedLanguageResponse call() throws Exception {
+	            GuessedLanguageResponse guessedLanguage;
+	            final CircuitBreaker circuitBreaker = MLLanguageIdentifierEnhancementEngine.this.circuitBreaker;
+	            if(circuitBreaker == null){
+	                guessedLanguage = sendLanguageRequest(text);
+	            } else {
+	                guessedLanguage = circuitBreaker.execute(new Callable<GuessedLanguageResponse>() {
+	                    @Override
+	                    public GuessedLanguageResponse call() throws Exception {
+	                        return sendLanguageRequest(text);
+	                    }
+	                });
+	            }
+	            if(cache != null){
+	                cache.put(key, guessedLanguage, LANGUAGE_RESPONSE_SIZE);
+	            }
+	            return guessedLanguage;
+	        }
+	    });
+	}
+
+	/**
+	 * Sends the request to the <b>/lang</b> endpoint within the limits of the
+	 * {@link #rateLimiter}
+	 * @throws EngineException if the request was rejected by the rate limiter
+	 */
+	private GuessedLanguageResponse sendLanguageRequest(String text) throws Exception {
+	    final RateLimiter rateLimiter = this.rateLimiter;
+	    if(rateLimiter == null){
+	        return callGuessLanguage(text);
+	    }
+	    if(!rateLimiter.acquire()){
+	        throw new EngineException("Engine " + getName() + " rejected the request to "
+	            + "MachineLinking because the rate limit " + rateLimiter + " was not satisfied within "
+	            + rateLimiter.getMaxWait() + "ms");
+	    }
+	    GuessedLanguageResponse guessedLanguage;
+	    try {
+	        guessedLanguage = callGuessLanguage(text);
+	    } catch (IOException e) {
+	        if(Util.isThrottled(e)){
+	            rateLimiter.throttled();
+	        }
+	        throw e;
+	    }
+	    rateLimiter.succeeded();
+	    return guessedLanguage;
+	}
+
+	/**
+	 * Calls the <b>/lang</b> endpoint. If {@link #deadline adaptive deadlines}
+	 * are enabled the request is cancelled after the deadline for the length
+	 * of the text. If {@link #hedger hedging} is enabled a second request is
+	 * sent if the first one does not answer in time.
+	 */
+	private GuessedLanguageResponse callGuessLanguage(final String text) throws Exception {
+	    final AdaptiveDeadline deadline = this.deadline;
+	    final Hedger hedger = this.hedger;
+	    long start = System.currentTimeMillis();
+	    if(deadline == null && hedger == null){
+	        GuessedLanguageResponse response = client.guessLanguage(text);
+	        metrics.recordRequest(text.length(), System.currentTimeMillis() - start, -1);
+	        return response;
+	    }
+	    long timeout = deadline == null ? Long.MAX_VALUE : deadline.getDeadline(text.length());
+	    long hedgeDelay = hedger == null ? -1 : hedger.startRequest(text.length());
+	    GuessedLanguageResponse response;
+	    try {
+	        response = client.call(new Callable<GuessedLanguageResponse>() {
+	            @Override
+	            public GuessedLanguageResponse call() throws Exception {
+	                return client.guessLanguage(text);
+	            }
+	        }, timeout, hedgeDelay, hedger);
+	    } catch (SocketTimeoutException e) {
+	        if(deadline != null){
+	            deadline.record(text.length(), timeout);
+	        }
+	        throw e;
+	    }
+	    long latency = System.currentTimeMillis() - start;
+	    metrics.recordRequest(text.length(), latency, -1);
+	    if(deadline != null){
+	        deadline.record(text.length(), latency);
+	    }
+	    if(hedger != null){
+	        hedger.record(text.length(), latency);
+	    }
+	    return response;
+	}
+
 	@Override
 	public Map<String, Object> getServiceProperties() {
 		return Collections.unmodifiableMap(
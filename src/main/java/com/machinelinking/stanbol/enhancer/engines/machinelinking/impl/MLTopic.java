@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import com.machinelinking.api.client.Topic;
+
+/**
+ * A topic classification of the <i>MachineLinking</i> service. This holds the
+ * information of a {@link Topic} as used by the {@link MLAnnotateEnhancementEngine}.
+ * Instances are immutable.
+ */
+class MLTopic {
+
+    private final String url;
+    private final String label;
+    private final double probability;
+
+    public MLTopic(String url, String label, double probability) {
+        this.url = url;
+        this.label = label;
+        this.probability = probability;
+    }
+
+    /**
+     * Converts the {@link Topic} as returned by the <i>MachineLinking</i>
+     * API client.
+     * @param topic the topic
+     * @return the converted topic
+     */
+    public static MLTopic valueOf(Topic topic) {
+        return new MLTopic(topic.getUrl().toString(), topic.getLabel(), topic.getProbability());
+    }
+
+    /**
+     * The Airpedia topic URL
+     * @return the URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return url + "[conf:" + probability + "]";
+    }
+}
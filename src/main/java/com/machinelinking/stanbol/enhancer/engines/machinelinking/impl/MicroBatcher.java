@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Combines small texts with the same request options (including the
+ * language) to a single annotation request. Texts are buffered for up to
+ * <code>maxWait</code> milliseconds or until the batch reaches
+ * <code>maxBatchLength</code> chars. The texts are concatenated with the
+ * {@link #SEPARATOR} and the annotation of the combined text is
+ * {@link MLAnnotation#slice(int, int) sliced} back to the single texts.<p>
+ * As topics are assigned to the whole text batching MUST NOT be used if
+ * topics are requested.
+ */
+class MicroBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MicroBatcher.class);
+
+    /**
+     * Separates the texts within a batch. A paragraph break around a single
+     * full stop ensures that no keyword spans multiple texts.
+     */
+    static final String SEPARATOR = "\n\n.\n\n";
+
+    /**
+     * Sends the annotation requests for batches
+     */
+    interface Annotator {
+        /**
+         * Annotates the combined text of a batch
+         */
+        MLAnnotation annotate(String text, Map<String,Object> options) throws Exception;
+        /**
+         * Called for every text of a batch with its annotation (e.g. to cache it)
+         */
+        void annotated(String text, Map<String,Object> options, MLAnnotation annotation);
+    }
+
+    private final Annotator annotator;
+    private final int maxTextLength;
+    private final int maxBatchLength;
+    private final long maxWait;
+
+    private final Map<String,Batch> pending = new HashMap<String,Batch>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService sender;
+
+    /**
+     * Set by {@link #close()}. Guarded by {@link #pending}.
+     */
+    private boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong texts = new AtomicLong();
+
+    /**
+     * Creates a new batcher
+     * @param name the name used for the threads
+     * @param annotator sends the requests
+     * @param maxTextLength the maximum length of texts that are batched
+     * @param maxBatchLength the maximum length of a batch
+     * @param maxWait the maximum time in milliseconds a text is buffered
+     */
+    public MicroBatcher(String name, Annotator annotator, int maxTextLength, int maxBatchLength, long maxWait) {
+        if(maxTextLength < 1 || maxBatchLength < maxTextLength){
+            throw new IllegalArgumentException("The maximum text length MUST BE > 0 and <= the maximum "
+                    + "batch length (text: " + maxTextLength + ", batch: " + maxBatchLength + ")!");
+        }
+        this.annotator = annotator;
+        this.maxTextLength = maxTextLength;
+        this.maxBatchLength = maxBatchLength;
+        this.maxWait = Math.max(0, maxWait);
+        this.timer = Executors.newSingleThreadScheduledExecutor(Util.createThreadFactory(name + "-batch-timer"));
+        this.sender = Executors.newCachedThreadPool(Util.createThreadFactory(name + "-batch"));
+    }
+
+    /**
+     * If the parsed text is small enough to be batched
+     * @param text the text
+     * @return the state
+     */
+    public boolean isBatchable(String text) {
+        return text.length() <= maxTextLength;
+    }
+
+    /**
+     * Adds the parsed text to the batch for the parsed options. If the batcher
+     * is already {@link #close() closed} the text is annotated directly by
+     * the calling thread.
+     * @param text the text. MUST BE {@link #isBatchable(String) batchable}
+     * @param options the request options. MUST NOT be modified afterwards
+     * @return the future annotation of the text
+     */
+    public Future<MLAnnotation> submit(String text, Map<String,Object> options) {
+        final String key = new TreeMap<String,Object>(options).toString();
+        Batch batch = null;
+        Result result = null;
+        boolean full = false;
+        synchronized (pending) {
+            if(!closed){
+                Batch current = pending.get(key);
+                if(current != null && !current.fits(text)){
+                    pending.remove(key);
+                    send(current);
+                    current = null;
+                }
+                if(current == null){
+                    current = new Batch(key, options);
+                    pending.put(key, current);
+                    final Batch scheduled = current;
+                    timer.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            flush(scheduled);
+                        }
+                    }, maxWait, TimeUnit.MILLISECONDS);
+                }
+                batch = current;
+                result = batch.add(text);
+                full = batch.length() >= maxBatchLength;
+                if(full){
+                    pending.remove(key);
+                }
+            }
+        }
+        if(result == null){ //closed: annotate the text directly
+            batch = new Batch(key, options);
+            result = batch.add(text);
+            batch.process();
+        } else if(full){
+            send(batch);
+        }
+        return result;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (pending) {
+            if(pending.get(batch.key) != batch){
+                return; //already sent
+            }
+            pending.remove(batch.key);
+        }
+        send(batch);
+    }
+
+    private void send(final Batch batch) {
+        batches.incrementAndGet();
+        texts.addAndGet(batch.results.size());
+        try {
+            sender.execute(new Runnable() {
+                @Override
+                public void run() {
+                    batch.process();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //closed concurrently
+            batch.process();
+        }
+    }
+
+    /**
+     * Closes the batcher. Pending batches are sent. Texts submitted afterwards
+     * are annotated directly.
+     */
+    public void close() {
+        List<Batch> remaining;
+        synchronized (pending) {
+            closed = true;
+            remaining = new ArrayList<Batch>(pending.values());
+            pending.clear();
+        }
+        for(Batch batch : remaining){
+            send(batch);
+        }
+        timer.shutdownNow();
+        sender.shutdown();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getTextCount() {
+        return texts.get();
+    }
+
+    @Override
+    public String toString() {
+        long b = getBatchCount();
+        return String.format("[batches: %d, texts: %d, texts/batch: %.1f]", b, getTextCount(),
+            b == 0 ? 0 : getTextCount() / (double)b);
+    }
+
+    /**
+     * The texts of a batch. Not thread safe.
+     */
+    private final class Batch {
+
+        private final String key;
+        private final Map<String,Object> options;
+        private final StringBuilder text = new StringBuilder();
+        private final List<Result> results = new ArrayList<Result>();
+
+        Batch(String key, Map<String,Object> options) {
+            this.key = key;
+            this.options = options;
+        }
+
+        boolean fits(String add) {
+            return text.length() + SEPARATOR.length() + add.length() <= maxBatchLength;
+        }
+
+        int length() {
+            return text.length();
+        }
+
+        Result add(String add) {
+            if(text.length() > 0){
+                text.append(SEPARATOR);
+            }
+            Result result = new Result(add, text.length(), text.length() + add.length());
+            text.append(add);
+            results.add(result);
+            return result;
+        }
+
+        void process() {
+            try {
+                MLAnnotation annotation;
+                try {
+                    annotation = annotator.annotate(text.toString(), options);
+                } catch (Exception e) {
+                    log.debug("Unable to annotate batch of " + results.size() + " texts", e);
+                    for(Result result : results){
+                        result.fail(e);
+                    }
+                    return;
+                } catch (Error e) {
+                    for(Result result : results){
+                        result.fail(e);
+                    }
+                    throw e;
+                }
+                for(Result result : results){
+                    MLAnnotation sliced;
+                    try {
+                        sliced = results.size() == 1 ? annotation : 
+                            annotation.slice(result.start, result.end);
+                    } catch (RuntimeException e) {
+                        log.warn("Unable to slice the annotation of a text with " 
+                            + result.text.length() + " chars from a batch", e);
+                        result.fail(e);
+                        continue;
+                    }
+                    try {
+                        annotator.annotated(result.text, options, sliced);
+                    } catch (RuntimeException e) { //the annotation is still valid
+                        log.warn("Unable to process the annotation of a text with "
+                            + result.text.length() + " chars from a batch", e);
+                    }
+                    result.complete(sliced);
+                }
+            } finally { //never leave callers waiting for an unprocessed text
+                for(Result result : results){
+                    if(!result.isDone()){
+                        result.fail(new IllegalStateException("The batch of " 
+                            + results.size() + " texts was not completed"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The future annotation of a text within a batch. Completed by the thread
+     * processing the batch. Can not be cancelled.
+     */
+    private static final class Result implements Future<MLAnnotation> {
+
+        private final String text;
+        private final int start;
+        private final int end;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile MLAnnotation annotation;
+        private volatile Throwable error;
+
+        Result(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        void complete(MLAnnotation annotation) {
+            this.annotation = annotation;
+            done.countDown();
+        }
+
+        void fail(Throwable t) {
+            this.error = t;
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false; //other texts of the batch still need the request
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public MLAnnotation get() throws InterruptedException, ExecutionException {
+            done.await();
+            return getResult();
+        }
+
+        @Override
+        public MLAnnotation get(long timeout, TimeUnit unit) 
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if(!done.await(timeout, unit)){
+                throw new TimeoutException();
+            }
+            return getResult();
+        }
+
+        private MLAnnotation getResult() throws ExecutionException {
+            if(error != null){
+                throw new ExecutionException(error);
+            }
+            return annotation;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.Locale;
+
+/**
+ * Controls which triples the {@link MLAnnotateEnhancementEngine} writes
+ * for the mentions (NGrams) of keywords. Entity and topic annotations are
+ * written by all profiles.
+ */
+enum OutputProfile {
+    /**
+     * Writes start, end, selected text, dc:type and the selection context
+     * of every mention
+     */
+    FULL(true, true),
+    /**
+     * As {@link #FULL} but without the selection context
+     */
+    COMPACT(true, false),
+    /**
+     * Only writes the start and end of every mention and the dc:relation to 
+     * the entity annotation
+     */
+    MINIMAL(false, false);
+
+    private final boolean selectedText;
+    private final boolean selectionContext;
+
+    private OutputProfile(boolean selectedText, boolean selectionContext) {
+        this.selectedText = selectedText;
+        this.selectionContext = selectionContext;
+    }
+
+    /**
+     * If the selected text and the dc:type are written for mentions
+     */
+    public boolean isSelectedText() {
+        return selectedText;
+    }
+
+    /**
+     * If the selection context is written for mentions
+     */
+    public boolean isSelectionContext() {
+        return selectionContext;
+    }
+
+    /**
+     * Parses the profile (case insensitive)
+     * @param value the value
+     * @return the profile
+     * @throws IllegalArgumentException if the parsed value is not a profile
+     */
+    public static OutputProfile parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
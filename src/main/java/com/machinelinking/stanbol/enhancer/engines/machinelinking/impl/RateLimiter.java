@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side token bucket rate limiter for requests to the <i>MachineLinking</i>
+ * service. Limiters are shared by all engines using the same application id
+ * (see {@link #acquire(String, int, int, int, long)}) as the quota of the
+ * API plan applies to the application.<p>
+ * Requests take a token from a per second bucket (refilled with the
+ * configured rate up to the burst size) and, if configured, from a per day
+ * bucket. If no token is available the request waits until the next token
+ * is available or fails if this would exceed the maximum wait time.<p>
+ * If the service responds with a throttling error {@link #throttled()}
+ * blocks all requests for an exponentially growing back off period. The
+ * period is reset by the next {@link #succeeded() successful} request.
+ */
+class RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    /**
+     * The initial back off period after a throttling error in milliseconds
+     */
+    static final long MIN_BACKOFF = 1000;
+    /**
+     * The maximum back off period in milliseconds
+     */
+    static final long MAX_BACKOFF = 60000;
+
+    private static final long NANOS_PER_DAY = TimeUnit.DAYS.toNanos(1);
+
+    private static final Map<String,RateLimiter> limiters = new HashMap<String,RateLimiter>();
+
+    private final String appId;
+    private final int perSecond;
+    private final int burst;
+    private final int perDay;
+    private final long maxWait;
+    private int references;
+
+    private final Bucket secondBucket;
+    private final Bucket dayBucket;
+    /**
+     * No token is issued before this time ({@link System#nanoTime()})
+     */
+    private long blockedUntil;
+    /**
+     * The current back off period in milliseconds or <code>0</code>
+     */
+    private long backoff;
+
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Creates a new rate limiter
+     * @param appId the application id (used for logging)
+     * @param perSecond the number of requests per second
+     * @param burst the maximum number of requests sent at once (values 
+     * <code>&lt;= 0</code> use <code>perSecond</code>)
+     * @param perDay the number of requests per day or <code>&lt;= 0</code> if
+     * not limited
+     * @param maxWait the maximum time in milliseconds a request waits for a token
+     */
+    RateLimiter(String appId, int perSecond, int burst, int perDay, long maxWait) {
+        if(perSecond < 1){
+            throw new IllegalArgumentException("The number of requests per second MUST BE > 0 (parsed: "
+                    + perSecond + ")!");
+        }
+        this.appId = appId;
+        this.perSecond = perSecond;
+        this.burst = burst > 0 ? burst : perSecond;
+        this.perDay = perDay > 0 ? perDay : 0;
+        this.maxWait = Math.max(0, maxWait);
+        long now = System.nanoTime();
+        this.secondBucket = new Bucket(perSecond / (double)TimeUnit.SECONDS.toNanos(1), this.burst, now);
+        this.dayBucket = this.perDay > 0 ? 
+                new Bucket(this.perDay / (double)NANOS_PER_DAY, this.perDay, now) : null;
+        this.blockedUntil = now;
+    }
+
+    /**
+     * Acquires the shared rate limiter for the parsed application id. Creates
+     * a new limiter if no engine is currently using one for this application.
+     * Each call MUST BE paired with a call to {@link #release(RateLimiter)}.
+     * @param appId the application id
+     * @param perSecond the number of requests per second
+     * @param burst the maximum number of requests sent at once
+     * @param perDay the number of requests per day or <code>&lt;= 0</code> if
+     * not limited
+     * @param maxWait the maximum time in milliseconds a request waits for a token
+     * @return the rate limiter
+     */
+    public static RateLimiter acquire(String appId, int perSecond, int burst, int perDay, long maxWait) {
+        synchronized (limiters) {
+            RateLimiter limiter = limiters.get(appId);
+            if(limiter == null){
+                limiter = new RateLimiter(appId, perSecond, burst, perDay, maxWait);
+                limiters.put(appId, limiter);
+            } else if(limiter.perSecond != perSecond || limiter.burst != (burst > 0 ? burst : perSecond)
+                    || limiter.perDay != Math.max(0, perDay) || limiter.maxWait != Math.max(0, maxWait)){
+                log.warn("Rate limit configuration for application {} differs from the one "
+                    + "used by other engines. Will use the existing rate limiter {}", appId, limiter);
+            }
+            limiter.references++;
+            return limiter;
+        }
+    }
+
+    /**
+     * Releases a rate limiter acquired by {@link #acquire(String, int, int, int, long)}
+     * @param limiter the rate limiter. <code>null</code> is ignored
+     */
+    public static void release(RateLimiter limiter) {
+        if(limiter == null){
+            return;
+        }
+        synchronized (limiters) {
+            limiter.references--;
+            if(limiter.references <= 0 && limiters.get(limiter.appId) == limiter){
+                limiters.remove(limiter.appId);
+            }
+        }
+    }
+
+    /**
+     * Takes a token for a request. Waits if no token is available.
+     * @return <code>true</code> if the request may be sent. <code>false</code>
+     * if the next token is not available within the maximum wait time.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long readyAt = Math.max(now, blockedUntil);
+            readyAt = Math.max(readyAt, secondBucket.getReadyAt(now));
+            if(dayBucket != null){
+                readyAt = Math.max(readyAt, dayBucket.getReadyAt(now));
+            }
+            wait = readyAt - now;
+            if(wait > TimeUnit.MILLISECONDS.toNanos(maxWait)){
+                rejected.incrementAndGet();
+                return false;
+            }
+            //reserve the token. Later requests will wait for the next one
+            secondBucket.take();
+            if(dayBucket != null){
+                dayBucket.take();
+            }
+        }
+        if(wait > 0){
+            delayed.incrementAndGet();
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+
+    /**
+     * Notifies the limiter about a request rejected by the service because
+     * the quota was exceeded. Blocks requests for the back off period and
+     * doubles the period for the next throttling error.
+     */
+    public synchronized void throttled() {
+        throttled.incrementAndGet();
+        long now = System.nanoTime();
+        if(now < blockedUntil){ //already backing off
+            return;
+        }
+        backoff = backoff == 0 ? MIN_BACKOFF : Math.min(MAX_BACKOFF, backoff * 2);
+        blockedUntil = now + TimeUnit.MILLISECONDS.toNanos(backoff);
+        log.warn("MachineLinking throttles requests of application {}. Back off for {}ms",
+            appId, backoff);
+    }
+
+    /**
+     * Notifies the limiter about a successful request. Resets the back off
+     * period.
+     */
+    public synchronized void succeeded() {
+        backoff = 0;
+    }
+
+    /**
+     * The number of requests that had to wait for a token
+     * @return the number of delayed requests
+     */
+    public long getDelayedCount() {
+        return delayed.get();
+    }
+
+    /**
+     * The number of requests rejected because no token was available within
+     * the maximum wait time
+     * @return the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * The number of throttling errors reported by the service
+     * @return the number of throttled requests
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[appId: %s, perSecond: %d, burst: %d, perDay: %d, delayed: %d, "
+            + "rejected: %d, throttled: %d]", appId, perSecond, burst, perDay, 
+            getDelayedCount(), getRejectedCount(), getThrottledCount());
+    }
+
+    /**
+     * A token bucket. Tokens may become negative for reserved tokens.
+     * Not thread safe.
+     */
+    private static final class Bucket {
+
+        /**
+         * tokens per nano second
+         */
+        private final double rate;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        Bucket(double rate, double capacity, long now) {
+            this.rate = rate;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Refills the bucket and returns the time the next token is available
+         */
+        long getReadyAt(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * rate);
+            lastRefill = now;
+            return tokens >= 1 ? now : now + (long)Math.ceil((1 - tokens) / rate);
+        }
+
+        void take() {
+            tokens = tokens - 1;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent requests to the <i>MachineLinking</i>
+ * service (single-flight). While a request for a given key is in flight
+ * other callers for the same key do not send an own request but wait for
+ * the result of the pending one.<p>
+ * Instances are thread safe. Results are shared between callers and MUST NOT
+ * be modified.
+ *
+ * @param <V> the type of the responses
+ */
+class RequestCoalescer<V> {
+
+    private final ConcurrentMap<String,FutureTask<V>> inFlight =
+            new ConcurrentHashMap<String,FutureTask<V>>();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Executes the parsed request unless an request with the same key is
+     * already in flight. In that case the caller waits for the result of the
+     * pending request.
+     * @param key the key identifying the request
+     * @param request the request
+     * @return the response
+     * @throws Exception the exception thrown by the request or an
+     * {@link InterruptedException} if interrupted while waiting for the
+     * pending request
+     */
+    public V execute(String key, Callable<V> request) throws Exception {
+        FutureTask<V> task = new FutureTask<V>(request);
+        FutureTask<V> pending = inFlight.putIfAbsent(key, task);
+        if(pending == null){
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            return Util.getResult(task);
+        } else {
+            coalesced.incrementAndGet();
+            return Util.getResult(pending);
+        }
+    }
+
+    /**
+     * The number of requests currently in flight
+     * @return the number of pending requests
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * The number of requests that where answered by an other pending request
+     * @return the number of coalesced requests
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory LRU cache for responses of the <i>MachineLinking</i>
+ * service. Entries are evicted if the maximum number of entries or the
+ * maximum (estimated) size in bytes is exceeded and expire after the
+ * configured time to live.<p>
+ * Instances are thread safe. Cached values are shared between callers and
+ * MUST NOT be modified.
+ *
+ * @param <V> the type of the cached responses
+ */
+class ResponseCache<V> {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttl;
+
+    /**
+     * Access ordered map used to implement the LRU semantic.
+     */
+    private final LinkedHashMap<String,CacheEntry<V>> entries =
+            new LinkedHashMap<String,CacheEntry<V>>(16, 0.75f, true);
+    /**
+     * The sum of the estimated sizes of all cached entries
+     */
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Creates a new cache
+     * @param maxEntries the maximum number of entries (MUST BE &gt; 0)
+     * @param maxBytes the maximum estimated size of all entries in bytes. Values
+     * <code>&lt;= 0</code> deactivate the size limit
+     * @param ttl the time to live of entries in milliseconds. Values
+     * <code>&lt;= 0</code> deactivate expiration
+     */
+    public ResponseCache(int maxEntries, long maxBytes, long ttl) {
+        if(maxEntries <= 0){
+            throw new IllegalArgumentException("The maximum number of entries MUST BE > 0 (parsed: "
+                    + maxEntries + ")!");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Getter for the cached value
+     * @param key the key
+     * @return the cached value or <code>null</code> if not present or expired
+     */
+    public V get(String key) {
+        CacheEntry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if(entry != null && entry.isExpired(System.currentTimeMillis())){
+                remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+        }
+        if(entry == null){
+            misses.incrementAndGet();
+            return null;
+        } else {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Adds a value to the cache
+     * @param key the key
+     * @param value the value
+     * @param size the estimated size of the value in bytes
+     */
+    public void put(String key, V value, long size) {
+        if(maxBytes > 0 && size > maxBytes){
+            return; //do not cache values bigger as the whole cache
+        }
+        long expires = ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+        synchronized (entries) {
+            CacheEntry<V> old = entries.put(key, new CacheEntry<V>(value, size, expires));
+            if(old != null){
+                bytes = bytes - old.size;
+            }
+            bytes = bytes + size;
+            Iterator<Map.Entry<String,CacheEntry<V>>> it = entries.entrySet().iterator();
+            while(it.hasNext() && (entries.size() > maxEntries || (maxBytes > 0 && bytes > maxBytes))){
+                Map.Entry<String,CacheEntry<V>> eldest = it.next();
+                bytes = bytes - eldest.getValue().size;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String key){
+        CacheEntry<V> old = entries.remove(key);
+        if(old != null){
+            bytes = bytes - old.size;
+        }
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[entries: %d/%d, bytes: %d/%d, hits: %d, misses: %d, "
+                + "evictions: %d, expirations: %d]", getClass().getSimpleName(),
+                size(), maxEntries, getBytes(), maxBytes, getHitCount(), getMissCount(),
+                getEvictionCount(), getExpirationCount());
+    }
+
+    private static class CacheEntry<V> {
+
+        final V value;
+        final long size;
+        final long expires;
+
+        CacheEntry(V value, long size, long expires) {
+            this.value = value;
+            this.size = size;
+            this.expires = expires;
+        }
+
+        boolean isExpired(long now){
+            return now > expires;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.clerezza.rdf.core.Language;
+import org.apache.clerezza.rdf.core.PlainLiteral;
+import org.apache.clerezza.rdf.core.impl.PlainLiteralImpl;
+import org.apache.stanbol.enhancer.servicesapi.helper.EnhancementEngineHelper;
+
+/**
+ * Index over the white spaces of a text used to calculate the selection
+ * contexts of all mentions of a document. The index is built once in linear
+ * time. Contexts are looked up by a binary search instead of rescanning the
+ * text for every mention as
+ * {@link EnhancementEngineHelper#getSelectionContext(String, String, int)}
+ * does. The calculated contexts are the same as those of the
+ * {@link EnhancementEngineHelper}.<p>
+ * Literals are shared by all mentions with the same context. Instances are
+ * intended to be used for a single document and are not thread safe.
+ */
+final class SelectionContextIndex {
+
+    private final String text;
+    private final Language lang;
+    private final int contextSize;
+    /**
+     * The sorted offsets of all spaces in the text
+     */
+    private final int[] spaces;
+    private final Map<Long,PlainLiteral> literals = new HashMap<Long,PlainLiteral>();
+
+    /**
+     * Creates an index using the
+     * {@link EnhancementEngineHelper#DEFAULT_SELECTION_CONTEXT_PREFIX_SUFFIX_SIZE}
+     * @param text the text
+     * @param lang the language of the text used for the literals or
+     * <code>null</code> if not known
+     */
+    public SelectionContextIndex(String text, Language lang) {
+        this(text, lang, EnhancementEngineHelper.DEFAULT_SELECTION_CONTEXT_PREFIX_SUFFIX_SIZE);
+    }
+
+    /**
+     * Creates an index
+     * @param text the text
+     * @param lang the language of the text used for the literals or
+     * <code>null</code> if not known
+     * @param contextSize the number of chars before and after a mention
+     */
+    public SelectionContextIndex(String text, Language lang, int contextSize) {
+        this.text = text;
+        this.lang = lang;
+        this.contextSize = Math.max(contextSize, 
+            EnhancementEngineHelper.MIN_SELECTION_CONTEXT_PREFIX_SUFFIX_SIZE);
+        int count = 0;
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) == ' '){
+                count++;
+            }
+        }
+        spaces = new int[count];
+        for(int i = 0, s = 0; s < count; i++){
+            if(text.charAt(i) == ' '){
+                spaces[s++] = i;
+            }
+        }
+    }
+
+    /**
+     * Getter for the selection context of a mention
+     * @param start the start of the mention
+     * @param end the end of the mention
+     * @return the selection context
+     */
+    public String getSelectionContext(int start, int end) {
+        long bounds = getBounds(start, end);
+        return text.substring((int)(bounds >>> 32), (int)bounds);
+    }
+
+    /**
+     * Getter for the selection context of a mention as literal. Mentions
+     * with the same context get the same literal instance.
+     * @param start the start of the mention
+     * @param end the end of the mention
+     * @return the selection context literal
+     */
+    public PlainLiteral getSelectionContextLiteral(int start, int end) {
+        long bounds = getBounds(start, end);
+        PlainLiteral literal = literals.get(bounds);
+        if(literal == null){
+            literal = new PlainLiteralImpl(text.substring((int)(bounds >>> 32), (int)bounds), lang);
+            literals.put(bounds, literal);
+        }
+        return literal;
+    }
+
+    /**
+     * The number of distinct contexts returned by 
+     * {@link #getSelectionContextLiteral(int, int)}
+     * @return the number of literals
+     */
+    public int getLiteralCount() {
+        return literals.size();
+    }
+
+    /**
+     * The <code>[begin,end)</code> of the context encoded as <code>long</code>
+     */
+    private long getBounds(int start, int end) {
+        int begin;
+        if(start <= contextSize){
+            begin = 0;
+        } else { //the first space after start - contextSize
+            int min = start - contextSize;
+            int i = Arrays.binarySearch(spaces, min);
+            i = i < 0 ? -i - 1 : i;
+            begin = i < spaces.length && spaces[i] < start ? spaces[i] : min;
+        }
+        int contextEnd;
+        if(end + contextSize >= text.length()){
+            contextEnd = text.length();
+        } else { //the last space before end + contextSize
+            int max = end + contextSize;
+            int i = Arrays.binarySearch(spaces, max);
+            i = i < 0 ? -i - 2 : i;
+            contextEnd = i >= 0 && spaces[i] > end ? spaces[i] : max;
+        }
+        return ((long)begin << 32) | contextEnd;
+    }
+}
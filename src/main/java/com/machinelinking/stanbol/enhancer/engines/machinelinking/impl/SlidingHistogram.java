@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+/**
+ * A {@link Histogram} over the values recorded within the last one to two
+ * windows. Values are recorded in two histograms. The older one is used for
+ * reading and replaced by a new (empty) histogram once per window, so values
+ * recorded before the last two windows are dropped.
+ */
+class SlidingHistogram {
+
+    private final String unit;
+    private final long window;
+
+    private volatile Histogram older;
+    private volatile Histogram newer;
+    private volatile long rotated;
+
+    /**
+     * Creates a new sliding histogram
+     * @param unit the unit of recorded values (only used by {@link #toString()})
+     * @param window the length of the window in milliseconds
+     */
+    public SlidingHistogram(String unit, long window) {
+        if(window <= 0){
+            throw new IllegalArgumentException("The window MUST BE > 0 (parsed: " + window + ")!");
+        }
+        this.unit = unit;
+        this.window = window;
+        this.older = new Histogram(unit);
+        this.newer = new Histogram(unit);
+        this.rotated = System.currentTimeMillis();
+    }
+
+    /**
+     * Records a value
+     * @param value the value
+     */
+    public void record(long value) {
+        rotate(System.currentTimeMillis());
+        older.record(value);
+        newer.record(value);
+    }
+
+    /**
+     * The histogram with the values of the last one to two windows
+     * @return the histogram
+     */
+    public Histogram getHistogram() {
+        rotate(System.currentTimeMillis());
+        return older;
+    }
+
+    /**
+     * Replaces the older histogram if the window has passed
+     * @param now the current time in milliseconds
+     */
+    void rotate(long now) {
+        if(now - rotated < window){
+            return;
+        }
+        synchronized (this) {
+            long elapsed = now - rotated;
+            if(elapsed >= window){
+                //after two windows without an update all values are outdated
+                older = elapsed >= 2 * window ? new Histogram(unit) : newer;
+                newer = new Histogram(unit);
+                rotated = now;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getHistogram().toString();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.stanbol.enhancer.nlp.model.AnalysedText;
+import org.apache.stanbol.enhancer.nlp.model.Sentence;
+
+/**
+ * Splits long texts in chunks that are annotated separately. Chunks are cut
+ * at sentence boundaries. Sentences are taken from the {@link AnalysedText}
+ * if available. Otherwise a {@link BreakIterator} is used to detect them.
+ * Only sentences longer as the maximum chunk size are cut at white spaces.
+ */
+final class TextChunker {
+
+    private TextChunker(){}
+
+    /**
+     * Splits the text into chunks with at most <code>maxChunkSize</code> chars.
+     * @param text the text
+     * @param maxChunkSize the maximum number of chars of a chunk
+     * @param at the analysed text or <code>null</code> if not available
+     * @param lang the language of the text or <code>null</code> if not known
+     * @return the chunks as <code>[start,end)</code> offsets. Chunks are
+     * consecutive and cover the whole text
+     */
+    public static List<int[]> chunk(String text, int maxChunkSize, AnalysedText at, String lang) {
+        if(maxChunkSize <= 0){
+            throw new IllegalArgumentException("The maximum chunk size MUST BE > 0 (parsed: "
+                    + maxChunkSize + ")!");
+        }
+        List<int[]> chunks = new ArrayList<int[]>();
+        if(text.length() <= maxChunkSize){
+            chunks.add(new int[]{0, text.length()});
+            return chunks;
+        }
+        int[] boundaries = at != null ? getSentenceBoundaries(at, text.length()) :
+            getSentenceBoundaries(text, lang);
+        int chunkStart = 0;
+        int lastBoundary = -1;
+        int i = 0;
+        while(i < boundaries.length){
+            int boundary = boundaries[i];
+            if(boundary <= chunkStart){
+                i++;
+            } else if(boundary - chunkStart <= maxChunkSize){
+                lastBoundary = boundary;
+                i++;
+            } else if(lastBoundary > chunkStart){ //cut at the last sentence boundary
+                chunks.add(new int[]{chunkStart, lastBoundary});
+                chunkStart = lastBoundary;
+            } else { //the sentence is longer as the maximum chunk size
+                int split = getWhitespaceSplit(text, chunkStart, chunkStart + maxChunkSize);
+                chunks.add(new int[]{chunkStart, split});
+                chunkStart = split;
+            }
+        }
+        if(chunkStart < text.length()){
+            chunks.add(new int[]{chunkStart, text.length()});
+        }
+        return chunks;
+    }
+
+    /**
+     * Getter for the end offsets of the sentences of the {@link AnalysedText}
+     */
+    private static int[] getSentenceBoundaries(AnalysedText at, int length) {
+        List<Integer> ends = new ArrayList<Integer>();
+        for(Iterator<Sentence> sentences = at.getSentences(); sentences.hasNext();){
+            ends.add(sentences.next().getEnd());
+        }
+        int[] boundaries = new int[ends.size() + 1];
+        for(int i = 0; i < ends.size(); i++){
+            boundaries[i] = ends.get(i);
+        }
+        boundaries[ends.size()] = length;
+        return boundaries;
+    }
+
+    /**
+     * Getter for the end offsets of the sentences as detected by the
+     * {@link BreakIterator} for the language
+     */
+    private static int[] getSentenceBoundaries(String text, String lang) {
+        BreakIterator sentenceIt = BreakIterator.getSentenceInstance(
+            lang == null ? Locale.ROOT : new Locale(lang));
+        sentenceIt.setText(text);
+        List<Integer> ends = new ArrayList<Integer>();
+        for(int end = sentenceIt.next(); end != BreakIterator.DONE; end = sentenceIt.next()){
+            ends.add(end);
+        }
+        int[] boundaries = new int[ends.size()];
+        for(int i = 0; i < boundaries.length; i++){
+            boundaries[i] = ends.get(i);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Searches the last white space after <code>start</code> and before
+     * <code>max</code>
+     * @return the index after the white space or <code>max</code> if none
+     */
+    private static int getWhitespaceSplit(String text, int start, int max) {
+        for(int i = max - 1; i > start; i--){
+            if(Character.isWhitespace(text.charAt(i))){
+                return i + 1;
+            }
+        }
+        return max;
+    }
+}
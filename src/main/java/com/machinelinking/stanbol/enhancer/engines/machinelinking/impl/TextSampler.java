@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Selects a bounded sample of a text. Used to limit the amount of text sent
+ * to the <i>MachineLinking</i> <b>/lang</b> endpoint. Samples are cut at
+ * white spaces.
+ */
+final class TextSampler {
+
+    /**
+     * The strategies supported to sample a text
+     */
+    enum Strategy {
+        /**
+         * Uses the beginning of the text
+         */
+        HEAD,
+        /**
+         * Uses several evenly spaced windows of the text
+         */
+        WINDOWS;
+
+        /**
+         * Parses the strategy (case insensitive)
+         * @param value the value
+         * @return the strategy
+         * @throws IllegalArgumentException if the parsed value is not a strategy
+         */
+        public static Strategy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private TextSampler(){}
+
+    /**
+     * Samples the parsed text.
+     * @param text the text
+     * @param maxBytes the maximum size of all samples in bytes (UTF-8)
+     * @param strategy the strategy
+     * @param windows the number of windows used by {@link Strategy#WINDOWS}
+     * @return the samples. A single sample with the whole text if the text
+     * is not bigger as <code>maxBytes</code>
+     */
+    public static List<String> sample(String text, int maxBytes, Strategy strategy, int windows) {
+        if(utf8Length(text, 0, text.length(), maxBytes) <= maxBytes){
+            return Collections.singletonList(text);
+        }
+        if(strategy == Strategy.HEAD || windows <= 1){
+            return Collections.singletonList(window(text, 0, maxBytes));
+        }
+        int windowBytes = maxBytes / windows;
+        //the distance between the starts of two windows
+        int step = text.length() / windows;
+        List<String> samples = new ArrayList<String>(windows);
+        for(int i = 0; i < windows; i++){
+            int start = i * step;
+            if(start > 0){ //start after the next white space
+                int ws = start;
+                while(ws < text.length() && ws < start + step && !Character.isWhitespace(text.charAt(ws))){
+                    ws++;
+                }
+                start = ws;
+            }
+            String sample = window(text, start, windowBytes);
+            if(!Util.isBlank(sample, 0, sample.length())){
+                samples.add(sample);
+            }
+        }
+        return samples.isEmpty() ? Collections.singletonList(window(text, 0, maxBytes)) : samples;
+    }
+
+    /**
+     * Returns the section starting at <code>start</code> with up to
+     * <code>maxBytes</code> bytes cut at the last white space.
+     */
+    private static String window(String text, int start, int maxBytes) {
+        int bytes = 0;
+        int end = start;
+        while(end < text.length()){
+            int charBytes = utf8Length(text.charAt(end));
+            if(bytes + charBytes > maxBytes){
+                break;
+            }
+            bytes = bytes + charBytes;
+            end++;
+        }
+        if(end < text.length()){ //cut at the last white space
+            int ws = end;
+            while(ws > start && !Character.isWhitespace(text.charAt(ws - 1))){
+                ws--;
+            }
+            if(ws > start){
+                end = ws;
+            }
+        }
+        return text.substring(start, end).trim();
+    }
+
+    /**
+     * The UTF-8 length of the parsed section. Counting stops as soon as
+     * <code>limit</code> is exceeded.
+     */
+    private static int utf8Length(String text, int start, int end, int limit) {
+        int bytes = 0;
+        for(int i = start; i < end && bytes <= limit; i++){
+            bytes = bytes + utf8Length(text.charAt(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * The UTF-8 length of a char. Surrogates are counted with two bytes (four
+     * bytes for the pair).
+     */
+    private static int utf8Length(char c) {
+        if(c < 0x80){
+            return 1;
+        } else if(c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)){
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+}
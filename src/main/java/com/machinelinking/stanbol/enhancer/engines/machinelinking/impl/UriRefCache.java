@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.clerezza.rdf.core.UriRef;
+
+/**
+ * Bounded, concurrent cache used to intern {@link UriRef}s created for
+ * entities, types and topics. Returning shared instances avoids to create
+ * the same URI strings over and over again.<p>
+ * The cache uses two generations: new entries are added to the young
+ * generation. If it exceeds half of the maximum size it replaces the old
+ * generation. Entries found in the old generation are promoted to the young
+ * one. So frequently used URIs stay in the cache while the size is bound
+ * to the configured maximum.
+ *
+ * @param <K> the type of the keys
+ */
+class UriRefCache<K> {
+
+    private final int generationSize;
+    private volatile ConcurrentHashMap<K,UriRef> young;
+    private volatile ConcurrentHashMap<K,UriRef> old;
+
+    /**
+     * Creates a new cache
+     * @param maxSize the maximum number of cached {@link UriRef}s
+     */
+    public UriRefCache(int maxSize) {
+        if(maxSize < 2){
+            throw new IllegalArgumentException("The maximum size MUST BE >= 2 (parsed: "
+                    + maxSize + ")!");
+        }
+        this.generationSize = maxSize / 2;
+        this.young = new ConcurrentHashMap<K,UriRef>();
+        this.old = new ConcurrentHashMap<K,UriRef>();
+    }
+
+    /**
+     * Getter for the cached {@link UriRef}
+     * @param key the key
+     * @return the cached {@link UriRef} or <code>null</code> if not cached
+     */
+    public UriRef get(K key) {
+        UriRef uri = young.get(key);
+        if(uri == null){
+            uri = old.get(key);
+            if(uri != null){ //promote to the young generation
+                uri = put(key, uri);
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * Adds an {@link UriRef} to the cache
+     * @param key the key
+     * @param uri the {@link UriRef}
+     * @return the {@link UriRef} to be used for the key. This might be a
+     * different instance as the parsed one if an other thread has added an
+     * {@link UriRef} for the same key concurrently.
+     */
+    public UriRef put(K key, UriRef uri) {
+        ConcurrentHashMap<K,UriRef> current = young;
+        UriRef existing = current.putIfAbsent(key, uri);
+        if(current.size() > generationSize){
+            synchronized (this) {
+                if(young == current){
+                    old = current;
+                    young = new ConcurrentHashMap<K,UriRef>();
+                }
+            }
+        }
+        return existing == null ? uri : existing;
+    }
+
+    /**
+     * The number of cached {@link UriRef}s. Entries promoted from the old to
+     * the young generation are counted twice.
+     * @return the size
+     */
+    public int size() {
+        return young.size() + old.size();
+    }
+}
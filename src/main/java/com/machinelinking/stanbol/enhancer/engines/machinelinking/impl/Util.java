@@ -22,10 +22,22 @@ import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_CO
 import static org.apache.stanbol.enhancer.servicesapi.rdf.TechnicalClasses.DCTERMS_LINGUISTIC_SYSTEM;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.apache.clerezza.rdf.core.LiteralFactory;
 import org.apache.clerezza.rdf.core.MGraph;
@@ -35,6 +47,7 @@ import org.apache.clerezza.rdf.core.impl.TripleImpl;
 import org.apache.stanbol.enhancer.servicesapi.Blob;
 import org.apache.stanbol.enhancer.servicesapi.ContentItem;
 import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.NoSuchPartException;
 import org.apache.stanbol.enhancer.servicesapi.helper.ContentItemHelper;
 import org.osgi.service.cm.ConfigurationException;
 
@@ -63,6 +76,24 @@ public class Util {
 	 */
 	private static final Set<String> SUPPORTED_MIMTYPES = Collections.singleton(TEXT_PLAIN_MIMETYPE);
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The URI of the content part holding the text decoded from the
+     * <code>text/plain</code> {@link Blob}. Used to decode the content only
+     * once if processed by both <i>MachineLinking</i> engines.
+     */
+    static final UriRef DECODED_TEXT_URI = new UriRef("urn:machinelinking:part:decodedText");
+
+    /**
+     * Matches the HTTP status <code>429 Too Many Requests</code> as reported
+     * in the messages of the {@link IOException}s thrown by the api-client
+     * (e.g. <code>Server returned HTTP response code: 429 for URL: ...</code>)
+     */
+    private static final Pattern THROTTLED_STATUS = Pattern.compile(
+        "\\bHTTP(?:/\\d(?:\\.\\d)?)?(?: response code:)? 429\\b|\\bToo Many Requests\\b",
+        Pattern.CASE_INSENSITIVE);
+
     private Util(){}
 
     /**
@@ -104,7 +135,10 @@ public class Util {
     }
 
     /**
-     * Extracts text from the content item.
+     * Extracts text from the content item. The decoded text is stored as
+     * content part of the content item (see {@link #DECODED_TEXT_URI}) so
+     * that later calls for the same content item do not read and decode it
+     * again.
      *
      * @param ci
      * @return
@@ -119,8 +153,18 @@ public class Util {
                     + "indicated an Bug in the implementation of the " + "EnhancementJobManager!");
         }
 
-        final String text = ContentItemHelper.getText(contentPart.getValue());
-        if (text.trim().length() == 0) {
+        final Blob blob = contentPart.getValue();
+        String text = getDecodedText(ci, blob);
+        if (text == null) {
+            text = ContentItemHelper.getText(blob);
+            ci.getLock().writeLock().lock();
+            try {
+                ci.addPart(DECODED_TEXT_URI, new DecodedText(blob, text));
+            } finally {
+                ci.getLock().writeLock().unlock();
+            }
+        }
+        if (isBlank(text, 0, text.length())) {
             throw new IllegalArgumentException(
                     "No text contained in ContentPart {" + contentPart.getKey() +
                     "} of ContentItem {" +
@@ -130,6 +174,155 @@ public class Util {
         return text;
     }
 
+    /**
+     * The text decoded from the parsed blob if already stored in the content item
+     */
+    private static String getDecodedText(ContentItem ci, Blob blob) {
+        ci.getLock().readLock().lock();
+        try {
+            DecodedText decoded = ci.getPart(DECODED_TEXT_URI, DecodedText.class);
+            return decoded.blob == blob ? decoded.text : null;
+        } catch (NoSuchPartException e) {
+            return null; //not yet decoded
+        } finally {
+            ci.getLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates the key used to cache responses of the <i>MachineLinking</i>
+     * service. The key is based on the SHA-1 hash of the parsed text and the
+     * sorted request options.
+     *
+     * @param text the text sent to the service
+     * @param options the request options or <code>null</code> if none
+     * @return the cache key
+     */
+    public static String createCacheKey(String text, Map<String,Object> options) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 MessageDigest not supported by the JVM", e);
+        }
+        byte[] hash = digest.digest(text.getBytes(UTF8));
+        StringBuilder key = new StringBuilder(new BigInteger(1, hash).toString(16));
+        if(options != null && !options.isEmpty()){
+            key.append(new TreeMap<String,Object>(options));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Checks if the parsed section of the text only contains white spaces
+     * (as defined by {@link String#trim()}).
+     *
+     * @param text the text
+     * @param start the start of the section
+     * @param end the end of the section
+     * @return <code>true</code> if the section is blank
+     */
+    public static boolean isBlank(String text, int start, int end) {
+        for(int i = start; i < end; i++){
+            if(text.charAt(i) > ' '){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the result of the parsed future. If the computation failed the
+     * original exception is re-thrown.
+     *
+     * @param future the future
+     * @param <T> the type of the result
+     * @return the result
+     * @throws Exception the exception thrown by the computation or an
+     * {@link InterruptedException} if interrupted while waiting
+     */
+    public static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Creates an already completed future
+     *
+     * @param value the result of the future
+     * @param <T> the type of the result
+     * @return the completed future
+     */
+    public static <T> Future<T> createDoneFuture(final T value) {
+        FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() {
+                return value;
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Creates an already failed future
+     *
+     * @param e the exception thrown by {@link Future#get()} as cause of the
+     * {@link ExecutionException}
+     * @param <T> the type of the result
+     * @return the failed future
+     */
+    public static <T> Future<T> createFailedFuture(final Exception e) {
+        FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                throw e;
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Unwraps the cause of an {@link ExecutionException}. {@link Error}s are
+     * re-thrown.
+     *
+     * @param e the execution exception
+     * @return the cause or the parsed exception if the cause is no {@link Exception}
+     */
+    public static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if(cause instanceof Exception){
+            return (Exception)cause;
+        } else if(cause instanceof Error){
+            throw (Error)cause;
+        } else {
+            return e;
+        }
+    }
+
+    /**
+     * Creates a {@link ThreadFactory} for daemon threads with the parsed name
+     * prefix.
+     *
+     * @param name the prefix for the thread names
+     * @return the thread factory
+     */
+    public static ThreadFactory createThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + '-' + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
     /**
      * Cheks whether the mimetype can be enhanced.
      *
@@ -145,15 +338,29 @@ public class Util {
     }
 
     /**
-     * Adds language specific properties.
+     * Adds language specific properties for a language detected by the
+     * <i>MachineLinking</i> service.
      *
      * @param entityAnnotation
      * @param g
      * @param lang
      */
     public static void addLanguageProperty(UriRef entityAnnotation, MGraph g, String lang) {
+        //the MachineLinking service does not report a confidence
+        addLanguageProperty(entityAnnotation, g, lang, 1.0);
+    }
+
+    /**
+     * Adds language specific properties.
+     *
+     * @param entityAnnotation
+     * @param g
+     * @param lang
+     * @param confidence the confidence of the language detection
+     */
+    public static void addLanguageProperty(UriRef entityAnnotation, MGraph g, String lang, double confidence) {
         g.add(new TripleImpl(entityAnnotation, DC_LANGUAGE, new PlainLiteralImpl(lang)));
-        g.add(new TripleImpl(entityAnnotation, ENHANCER_CONFIDENCE, literalFactory.createTypedLiteral(1.0)));
+        g.add(new TripleImpl(entityAnnotation, ENHANCER_CONFIDENCE, literalFactory.createTypedLiteral(confidence)));
         g.add(new TripleImpl(entityAnnotation, DC_TYPE, DCTERMS_LINGUISTIC_SYSTEM));
     }
 
@@ -224,6 +431,179 @@ public class Util {
             return null;
         }
     }
+    /**
+     * Creates the {@link AdaptiveDeadline} based on the {@link MLConstants#DEADLINE_FACTOR},
+     * {@link MLConstants#DEADLINE_PERCENTILE}, {@link MLConstants#DEADLINE_MIN}
+     * and {@link MLConstants#DEADLINE_MAX} properties.
+     * @param conf the configuration
+     * @param connTimeout the connection timeout used if no maximum is configured
+     * @return the adaptive deadline or <code>null</code> if deactivated
+     * @throws ConfigurationException if a property is not valid
+     */
+    public static AdaptiveDeadline createAdaptiveDeadline(Dictionary<String,Object> conf, int connTimeout) 
+            throws ConfigurationException {
+        Double factor = getDoubleProperty(conf, MLConstants.DEADLINE_FACTOR);
+        if(factor == null){
+            factor = MLConstants.DEFAULT_DEADLINE_FACTOR;
+        }
+        if(factor <= 0){
+            return null;
+        }
+        Double percentile = getDoubleProperty(conf, MLConstants.DEADLINE_PERCENTILE);
+        if(percentile == null){
+            percentile = MLConstants.DEFAULT_DEADLINE_PERCENTILE;
+        } else if(percentile < 0 || percentile > 1){
+            throw new ConfigurationException(MLConstants.DEADLINE_PERCENTILE, 
+                "The percentile MUST BE in the range [0..1] (configured: " + percentile + ")!");
+        }
+        Integer min = getIngegerProperty(conf, MLConstants.DEADLINE_MIN);
+        if(min == null){
+            min = MLConstants.DEFAULT_DEADLINE_MIN;
+        }
+        Integer max = getIngegerProperty(conf, MLConstants.DEADLINE_MAX);
+        if(max == null){
+            max = MLConstants.DEFAULT_DEADLINE_MAX;
+        }
+        if(max <= 0){
+            max = connTimeout;
+        }
+        if(min > max){
+            throw new ConfigurationException(MLConstants.DEADLINE_MIN, "The minimum deadline "
+                + min + "ms MUST NOT BE greater as the maximum deadline " + max + "ms!");
+        }
+        return new AdaptiveDeadline(percentile, factor, min, max);
+    }
+
+    /**
+     * Creates the {@link Hedger} based on the {@link MLConstants#HEDGE_PERCENTILE}
+     * and {@link MLConstants#HEDGE_MAX_EXTRA_LOAD} properties.
+     * @param conf the configuration
+     * @return the hedger or <code>null</code> if hedging is deactivated
+     * @throws ConfigurationException if a property is not valid
+     */
+    public static Hedger createHedger(Dictionary<String,Object> conf) throws ConfigurationException {
+        Double percentile = getDoubleProperty(conf, MLConstants.HEDGE_PERCENTILE);
+        if(percentile == null){
+            percentile = MLConstants.DEFAULT_HEDGE_PERCENTILE;
+        }
+        if(percentile <= 0){
+            return null;
+        } else if(percentile > 1){
+            throw new ConfigurationException(MLConstants.HEDGE_PERCENTILE, 
+                "The percentile MUST BE in the range (0..1] (configured: " + percentile + ")!");
+        }
+        Double maxExtraLoad = getDoubleProperty(conf, MLConstants.HEDGE_MAX_EXTRA_LOAD);
+        return new Hedger(percentile, maxExtraLoad == null ? 
+                MLConstants.DEFAULT_HEDGE_MAX_EXTRA_LOAD : maxExtraLoad);
+    }
+
+    /**
+     * Acquires the shared {@link RateLimiter} for the parsed application id
+     * based on the {@link MLConstants#RATE_PER_SECOND}, {@link MLConstants#RATE_BURST},
+     * {@link MLConstants#RATE_PER_DAY} and {@link MLConstants#RATE_MAX_WAIT}
+     * properties.
+     * @param conf the configuration
+     * @param appId the application id
+     * @return the rate limiter or <code>null</code> if rate limiting is not
+     * configured
+     * @throws ConfigurationException if a property could not be parsed
+     */
+    public static RateLimiter acquireRateLimiter(Dictionary<String,Object> conf, String appId) 
+            throws ConfigurationException {
+        Integer perSecond = getIngegerProperty(conf, MLConstants.RATE_PER_SECOND);
+        if(perSecond == null){
+            perSecond = MLConstants.DEFAULT_RATE_PER_SECOND;
+        }
+        if(perSecond <= 0){
+            return null;
+        }
+        Integer burst = getIngegerProperty(conf, MLConstants.RATE_BURST);
+        Integer perDay = getIngegerProperty(conf, MLConstants.RATE_PER_DAY);
+        Integer maxWait = getIngegerProperty(conf, MLConstants.RATE_MAX_WAIT);
+        return RateLimiter.acquire(appId, perSecond,
+            burst == null ? MLConstants.DEFAULT_RATE_BURST : burst, 
+            perDay == null ? MLConstants.DEFAULT_RATE_PER_DAY : perDay,
+            maxWait == null ? MLConstants.DEFAULT_RATE_MAX_WAIT : maxWait);
+    }
+
+    /**
+     * Creates a {@link CircuitBreaker} based on the {@link MLConstants#CIRCUIT_FAILURE_RATE},
+     * {@link MLConstants#CIRCUIT_WINDOW_SIZE} and {@link MLConstants#CIRCUIT_OPEN_DURATION}
+     * properties.
+     * @param conf the configuration
+     * @param name the name of the engine
+     * @return the circuit breaker or <code>null</code> if not configured
+     * @throws ConfigurationException if a property is not valid
+     */
+    public static CircuitBreaker createCircuitBreaker(Dictionary<String,Object> conf, String name) 
+            throws ConfigurationException {
+        Integer failureRate = getIngegerProperty(conf, MLConstants.CIRCUIT_FAILURE_RATE);
+        if(failureRate == null){
+            failureRate = MLConstants.DEFAULT_CIRCUIT_FAILURE_RATE;
+        }
+        if(failureRate <= 0){
+            return null;
+        } else if(failureRate > 100){
+            throw new ConfigurationException(MLConstants.CIRCUIT_FAILURE_RATE, 
+                "The failure rate MUST BE <= 100 percent (configured: " + failureRate + ")!");
+        }
+        Integer windowSize = getIngegerProperty(conf, MLConstants.CIRCUIT_WINDOW_SIZE);
+        if(windowSize == null){
+            windowSize = MLConstants.DEFAULT_CIRCUIT_WINDOW_SIZE;
+        } else if(windowSize < 1){
+            throw new ConfigurationException(MLConstants.CIRCUIT_WINDOW_SIZE, 
+                "The window size MUST BE > 0 (configured: " + windowSize + ")!");
+        }
+        Integer openDuration = getIngegerProperty(conf, MLConstants.CIRCUIT_OPEN_DURATION);
+        return new CircuitBreaker(name, windowSize, failureRate, 
+            openDuration == null ? MLConstants.DEFAULT_CIRCUIT_OPEN_DURATION : openDuration);
+    }
+
+    /**
+     * Checks if the parsed exception indicates that <i>MachineLinking</i>
+     * has rejected the request because the quota of the API plan was
+     * exceeded. The api-client does not expose the HTTP status so this
+     * checks the message of the exception and its causes for the 
+     * HTTP status 429.
+     * @param e the exception
+     * @return <code>true</code> if the request was throttled
+     */
+    public static boolean isThrottled(Throwable e) {
+        for(Throwable t = e; t != null; t = t.getCause()){
+            String message = t.getMessage();
+            if(message != null && THROTTLED_STATUS.matcher(message).find()){
+                return true;
+            }
+            if(t.getCause() == t){
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a Double property from the parsed configuration and property
+     * @param conf the configuration
+     * @param property the property
+     * @return the value or <code>null</code> if the property was not present
+     * @throws ConfigurationException if the property could not be parsed as a {@link Double}
+     */
+    public static Double getDoubleProperty(Dictionary<String,Object> conf, String property) throws ConfigurationException {
+        Object value = conf.get(property);
+        if(value instanceof Number){
+            return ((Number)value).doubleValue();
+        } else if(value != null){
+            try {
+                return Double.parseDouble(value.toString());
+            } catch (NumberFormatException e){
+                throw new ConfigurationException(property, "Unable to parse Double from "
+                    + value + "(type: " + value.getClass() + ")!", e);
+            }
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Parses an Integer property from the parsed configuration and property
      * @param conf the configuration
@@ -246,4 +626,18 @@ public class Util {
             return null;
         }
     }
+
+    /**
+     * Content part holding the text decoded from a {@link Blob}
+     */
+    private static final class DecodedText {
+
+        private final Blob blob;
+        private final String text;
+
+        DecodedText(Blob blob, String text) {
+            this.blob = blob;
+            this.text = text;
+        }
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link AdaptiveDeadline} class.
+ */
+public class AdaptiveDeadlineTest {
+
+    @Test
+    public void testBuckets() {
+        Assert.assertEquals(0, AdaptiveDeadline.getBucket(0));
+        Assert.assertEquals(0, AdaptiveDeadline.getBucket(256));
+        Assert.assertEquals(1, AdaptiveDeadline.getBucket(257));
+        Assert.assertEquals(1, AdaptiveDeadline.getBucket(512));
+        Assert.assertEquals(AdaptiveDeadline.getBucket(1 << 22), 
+            AdaptiveDeadline.getBucket(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testDeadline() {
+        AdaptiveDeadline deadline = new AdaptiveDeadline(0.99, 3, 100, 30000);
+        //the maximum is used until enough latencies are recorded
+        Assert.assertEquals(30000, deadline.getDeadline(100));
+        for(int i = 0; i < AdaptiveDeadline.MIN_SAMPLES; i++){
+            deadline.record(100, 200);
+            deadline.record(100000, 20000);
+        }
+        long shortDeadline = deadline.getDeadline(100);
+        Assert.assertTrue(shortDeadline >= 600 && shortDeadline <= 750);
+        //clamped to the maximum
+        Assert.assertEquals(30000, deadline.getDeadline(100000));
+        //other buckets are not affected
+        Assert.assertEquals(30000, deadline.getDeadline(2000));
+        for(int i = 0; i < AdaptiveDeadline.MIN_SAMPLES; i++){
+            deadline.record(2000, 1);
+        }
+        //clamped to the minimum
+        Assert.assertEquals(100, deadline.getDeadline(2000));
+    }
+
+    @Test
+    public void testOutdatedLatencies() throws InterruptedException {
+        AdaptiveDeadline deadline = new AdaptiveDeadline(0.99, 3, 100, 30000, 100);
+        for(int i = 0; i < AdaptiveDeadline.MIN_SAMPLES; i++){
+            deadline.record(100, 5000);
+        }
+        Assert.assertEquals(15000, deadline.getDeadline(100), 3750);
+        Thread.sleep(250);
+        //the latencies are outdated: the maximum is used again
+        Assert.assertEquals(30000, deadline.getDeadline(100));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link Bulkhead} class.
+ */
+public class BulkheadTest {
+
+    @Test
+    public void testRejectWithoutQueue() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(2, 0, 1000);
+        Assert.assertTrue(bulkhead.acquire());
+        Assert.assertTrue(bulkhead.acquire());
+        Assert.assertEquals(2, bulkhead.getActiveCount());
+        Assert.assertFalse(bulkhead.acquire());
+        Assert.assertEquals(1, bulkhead.getRejectedCount());
+        bulkhead.release();
+        Assert.assertTrue(bulkhead.acquire());
+    }
+
+    @Test
+    public void testQueueTimeout() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 10);
+        Assert.assertTrue(bulkhead.acquire());
+        Assert.assertFalse(bulkhead.acquire());
+        Assert.assertEquals(1, bulkhead.getTimedOutCount());
+        Assert.assertEquals(0, bulkhead.getQueueDepth());
+    }
+
+    @Test
+    public void testQueued() throws InterruptedException {
+        final Bulkhead bulkhead = new Bulkhead(1, 1, 10000);
+        Assert.assertTrue(bulkhead.acquire());
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean acquired = new AtomicBoolean();
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    acquired.set(bulkhead.acquire());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waiting.start();
+        started.await();
+        while(bulkhead.getQueueDepth() == 0){
+            Thread.sleep(1);
+        }
+        //the queue is full
+        Assert.assertFalse(bulkhead.acquire());
+        Assert.assertEquals(1, bulkhead.getRejectedCount());
+        bulkhead.release();
+        waiting.join();
+        Assert.assertTrue(acquired.get());
+        Assert.assertEquals(2, bulkhead.getWaitTime().getCount());
+    }
+}
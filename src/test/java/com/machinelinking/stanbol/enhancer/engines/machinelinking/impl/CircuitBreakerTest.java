@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.stanbol.enhancer.servicesapi.EngineException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link CircuitBreaker} class.
+ */
+public class CircuitBreakerTest {
+
+    private static final Callable<String> SUCCESS = new Callable<String>() {
+        @Override
+        public String call() {
+            return "ok";
+        }
+    };
+
+    private static final Callable<String> FAILURE = new Callable<String>() {
+        @Override
+        public String call() throws IOException {
+            throw new IOException("Read timed out");
+        }
+    };
+
+    private static final Callable<String> REJECTED = new Callable<String>() {
+        @Override
+        public String call() throws EngineException {
+            throw new EngineException("rejected locally");
+        }
+    };
+
+    @Test
+    public void testOpenAndClose() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 50, 20);
+        execute(breaker, SUCCESS);
+        execute(breaker, FAILURE);
+        execute(breaker, SUCCESS);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        execute(breaker, FAILURE); //2 of 4 failed
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        try {
+            breaker.execute(SUCCESS);
+            Assert.fail("CircuitOpenException expected");
+        } catch (CircuitOpenException e) {
+            //expected
+        }
+        Assert.assertEquals(1, breaker.getRejectedCount());
+        Thread.sleep(30);
+        //failed probe opens the circuit again
+        execute(breaker, FAILURE);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(30);
+        Assert.assertEquals("ok", breaker.execute(SUCCESS));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(2, breaker.getOpenedCount());
+        Assert.assertEquals(2, breaker.getHalfOpenedCount());
+        Assert.assertEquals(1, breaker.getClosedCount());
+    }
+
+    @Test
+    public void testSingleProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 100, 0);
+        execute(breaker, FAILURE);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Object probe = breaker.allowRequest();
+        Assert.assertNotNull(probe);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertNull(breaker.allowRequest());
+        breaker.onIgnored(probe); //the probe was rejected locally
+        Assert.assertNotNull(breaker.allowRequest());
+    }
+
+    @Test
+    public void testOnlyProbeChangesState() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 100, 0);
+        //slow requests sent while the circuit is closed
+        Object slowSuccess = breaker.allowRequest();
+        Object slowFailure = breaker.allowRequest();
+        Assert.assertNotNull(slowSuccess);
+        execute(breaker, FAILURE);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Object probe = breaker.allowRequest();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(slowSuccess);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onIgnored(slowSuccess);
+        Assert.assertNull(breaker.allowRequest()); //still the same probe in flight
+        breaker.onSuccess(probe);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        //completes after the circuit was closed again
+        breaker.onFailure(slowFailure);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(1, breaker.getClosedCount());
+    }
+
+    @Test
+    public void testIgnoredOutcomes() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 50, 1000);
+        for(int i = 0; i < 5; i++){
+            execute(breaker, REJECTED);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static void execute(CircuitBreaker breaker, Callable<String> request) throws Exception {
+        try {
+            breaker.execute(request);
+        } catch (CircuitOpenException e) {
+            throw e;
+        } catch (Exception e) {
+            //expected
+        }
+    }
+}
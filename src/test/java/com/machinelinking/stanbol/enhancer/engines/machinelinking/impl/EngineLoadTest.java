@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+
+/**
+ * Runs concurrent enhancement jobs through both engines against the
+ * {@link StubMLClient} to verify the concurrency and resilience features
+ * without network access.
+ */
+public class EngineLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineLoadTest.class);
+
+    private static final int CONN_TIMEOUT = 5000;
+
+    private StubMLClient stub;
+    private List<EnhancementEngine> engines = new ArrayList<EnhancementEngine>();
+
+    @Before
+    public void initStub() {
+        stub = new StubMLClient(CONN_TIMEOUT, 42).setLatency(2, 10);
+        MLClientRegistry.setClientFactory(StubMLClient.factory(stub));
+    }
+
+    @After
+    public void deactivateEngines() {
+        for(EnhancementEngine engine : engines){
+            if(engine instanceof MLAnnotateEnhancementEngine){
+                ((MLAnnotateEnhancementEngine)engine).deactivate(null);
+            } else {
+                ((MLLanguageIdentifierEnhancementEngine)engine).deactivate(null);
+            }
+        }
+        engines.clear();
+        MLClientRegistry.setClientFactory(null);
+        Assert.assertEquals(0, MLClientRegistry.size());
+    }
+
+    private static Dictionary<String,Object> createConfig(String name) {
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(EnhancementEngine.PROPERTY_NAME, name);
+        properties.put(MLConstants.APP_ID, "loadTestId");
+        properties.put(MLConstants.APP_KEY, "loadTestKey");
+        properties.put(MLConstants.CONNECTION_TIMEOUT, CONN_TIMEOUT);
+        //send a request for every job
+        properties.put(MLConstants.ANNOTATION_CACHE_SIZE, 0);
+        properties.put(MLConstants.LANGUAGE_CACHE_SIZE, 0);
+        return properties;
+    }
+
+    private MLLanguageIdentifierEnhancementEngine activateLanguageEngine(Dictionary<String,Object> config) 
+            throws IOException, ConfigurationException {
+        MLLanguageIdentifierEnhancementEngine engine = new MLLanguageIdentifierEnhancementEngine();
+        engine.activate(new MockComponentContext(config));
+        engines.add(engine);
+        return engine;
+    }
+
+    private MLAnnotateEnhancementEngine activateAnnotateEngine(Dictionary<String,Object> config) 
+            throws IOException, ConfigurationException {
+        MLAnnotateEnhancementEngine engine = new MLAnnotateEnhancementEngine();
+        engine.activate(new MockComponentContext(config));
+        engines.add(engine);
+        return engine;
+    }
+
+    /**
+     * Creates distinct texts so that requests are neither cached nor coalesced
+     */
+    private List<String> createTexts(int num) throws IOException {
+        List<String> base = Arrays.asList(
+            IOUtils.toString(getClass().getResourceAsStream("text1.txt"), "UTF-8"),
+            IOUtils.toString(getClass().getResourceAsStream("text_de.txt"), "UTF-8"),
+            "President Obama is meeting Angela Merkel in Berlin on Monday");
+        List<String> texts = new ArrayList<String>(num);
+        for(int i = 0; i < num; i++){
+            texts.add(base.get(i % base.size()) + "\n\n" + i);
+        }
+        return texts;
+    }
+
+    @Test
+    public void testConcurrentLoad() throws Exception {
+        activateLanguageEngine(createConfig("mlLangLoadTest"));
+        MLAnnotateEnhancementEngine annotate = activateAnnotateEngine(createConfig("mlAnnotateLoadTest"));
+        LoadHarness harness = new LoadHarness(engines, createTexts(200));
+        LoadHarness.Result result = harness.run(8, 200);
+        log.info("concurrent load: {}", result);
+        Assert.assertEquals(200, result.getCompleted());
+        Assert.assertEquals(0, result.getFailed());
+        Assert.assertEquals(200, stub.getLangCalls());
+        Assert.assertEquals(200, stub.getAnnotateCalls());
+        Assert.assertEquals(200, annotate.getMetrics().getDocumentCount());
+        Assert.assertTrue(result.getTriples().getMax() > 0);
+    }
+
+    @Test
+    public void testBulkhead() throws Exception {
+        Dictionary<String,Object> config = createConfig("mlAnnotateBulkheadTest");
+        config.put(MLConstants.MAX_CONCURRENT_REQUESTS, 2);
+        activateAnnotateEngine(config);
+        LoadHarness harness = new LoadHarness(engines, createTexts(100));
+        LoadHarness.Result result = harness.run(8, 100);
+        log.info("bulkhead: {}", result);
+        Assert.assertEquals(100, result.getCompleted());
+        Assert.assertTrue(stub.getMaxActive() <= 2);
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        stub.setErrors(1, 0);
+        Dictionary<String,Object> config = createConfig("mlAnnotateCircuitTest");
+        config.put(MLConstants.CIRCUIT_FAILURE_RATE, 50);
+        config.put(MLConstants.CIRCUIT_WINDOW_SIZE, 10);
+        config.put(MLConstants.CIRCUIT_OPEN_DURATION, 60000);
+        activateAnnotateEngine(config);
+        LoadHarness harness = new LoadHarness(engines, createTexts(100));
+        LoadHarness.Result result = harness.run(4, 100);
+        log.info("circuit breaker: {}", result);
+        Assert.assertEquals(100, result.getFailed());
+        Assert.assertTrue(result.getErrors().get("CircuitOpenException") > 0);
+        //the open circuit prevents further requests
+        Assert.assertTrue(stub.getAnnotateCalls() < 20);
+    }
+
+    @Test
+    public void testSkipOnOpenCircuit() throws Exception {
+        stub.setErrors(1, 0);
+        Dictionary<String,Object> config = createConfig("mlAnnotateCircuitSkipTest");
+        config.put(MLConstants.CIRCUIT_FAILURE_RATE, 50);
+        config.put(MLConstants.CIRCUIT_WINDOW_SIZE, 10);
+        config.put(MLConstants.CIRCUIT_OPEN_DURATION, 60000);
+        config.put(MLConstants.CIRCUIT_SKIP, true);
+        MLAnnotateEnhancementEngine annotate = activateAnnotateEngine(config);
+        LoadHarness harness = new LoadHarness(engines, createTexts(100));
+        LoadHarness.Result result = harness.run(4, 100);
+        log.info("circuit breaker (skip): {}", result);
+        //only the requests sent to the service fail
+        Assert.assertEquals(stub.getAnnotateCalls(), result.getFailed());
+        Assert.assertEquals(100 - result.getFailed(), annotate.getMetrics().getSkippedCount());
+        Assert.assertNull(annotate.getMetrics().getErrorCounts().get("CircuitOpenException"));
+    }
+
+    @Test
+    public void testTimeouts() throws Exception {
+        //a stub with a short connection timeout
+        stub = new StubMLClient(300, 42).setLatency(2, 10).setSlowRequests(0.1, 1000);
+        MLClientRegistry.setClientFactory(StubMLClient.factory(stub));
+        MLAnnotateEnhancementEngine annotate = activateAnnotateEngine(
+            createConfig("mlAnnotateTimeoutTest"));
+        LoadHarness harness = new LoadHarness(engines, createTexts(100));
+        LoadHarness.Result result = harness.run(16, 100);
+        log.info("timeouts: {}", result);
+        Assert.assertTrue(result.getFailed() > 0);
+        Assert.assertEquals(100, result.getCompleted() + result.getFailed());
+        Assert.assertEquals(Integer.valueOf(result.getFailed()), 
+            result.getErrors().get("SocketTimeoutException"));
+        Assert.assertEquals(Long.valueOf(result.getFailed()), 
+            annotate.getMetrics().getErrorCounts().get("SocketTimeoutException"));
+    }
+}
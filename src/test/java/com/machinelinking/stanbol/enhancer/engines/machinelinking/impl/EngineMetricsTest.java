@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link EngineMetrics} class.
+ */
+public class EngineMetricsTest {
+
+    @Test
+    public void testRecording() {
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.recordRequest(1000, 120, 4096);
+        metrics.recordRequest(500, 80, -1);
+        metrics.recordDocument(5, -1, 42);
+        metrics.recordError(new SocketTimeoutException());
+        metrics.recordError(new SocketTimeoutException());
+        metrics.recordError(new IOException());
+        metrics.recordSkipped();
+        Assert.assertEquals(1, metrics.getDocumentCount());
+        Assert.assertEquals(1, metrics.getSkippedCount());
+        Assert.assertEquals(Long.valueOf(2), metrics.getRemoteLatency().get("count"));
+        Assert.assertEquals(Long.valueOf(120), metrics.getRemoteLatency().get("max"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getResponseSize().get("count"));
+        Assert.assertEquals(Long.valueOf(0), metrics.getTopicsPerDocument().get("count"));
+        Assert.assertEquals(Long.valueOf(42), metrics.getTriplesPerDocument().get("max"));
+        Assert.assertEquals(Long.valueOf(2), metrics.getErrorCounts().get("SocketTimeoutException"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("IOException"));
+        //skipped content items are no errors
+        Assert.assertEquals(2, metrics.getErrorCounts().size());
+    }
+
+    @Test
+    public void testComponents() throws Exception {
+        EngineMetrics metrics = new EngineMetrics();
+        Assert.assertNull(metrics.getCircuitState());
+        Assert.assertTrue(metrics.getCircuitBreaker().isEmpty());
+        Assert.assertTrue(metrics.getBulkheadWaitTime().isEmpty());
+        Assert.assertTrue(metrics.getCache().isEmpty());
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 10, 50, 1000);
+        Bulkhead bulkhead = new Bulkhead(1, 1, 100);
+        ResponseCache<String> cache = new ResponseCache<String>(10, 0, 0);
+        Hedger hedger = new Hedger(0.9, 0.1);
+        metrics.setCircuitBreaker(circuitBreaker);
+        metrics.setBulkhead(bulkhead);
+        metrics.setCache(cache);
+        metrics.setHedger(hedger);
+        Assert.assertTrue(bulkhead.acquire());
+        bulkhead.release();
+        cache.put("key", "value", 10);
+        cache.get("key");
+        cache.get("other");
+        hedger.startRequest(10);
+        Assert.assertEquals("CLOSED", metrics.getCircuitState());
+        Assert.assertEquals(Long.valueOf(0), metrics.getCircuitBreaker().get("opened"));
+        Assert.assertEquals(Long.valueOf(0), metrics.getBulkhead().get("active"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getBulkheadWaitTime().get("count"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getCache().get("hits"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getCache().get("misses"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getHedging().get("requests"));
+        //deactivated components
+        metrics.setCache(null);
+        Assert.assertTrue(metrics.getCache().isEmpty());
+    }
+
+    @Test
+    public void testRegistration() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = EngineMetrics.createName("test-ml,engine");
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.register("test-ml,engine");
+        try {
+            Assert.assertTrue(server.isRegistered(name));
+            metrics.recordDocument(3, 1, 20);
+            Assert.assertEquals(Long.valueOf(1), server.getAttribute(name, "DocumentCount"));
+            TabularData triples = (TabularData)server.getAttribute(name, "TriplesPerDocument");
+            CompositeData max = triples.get(new Object[]{"max"});
+            Assert.assertEquals(Long.valueOf(20), max.get("value"));
+            Assert.assertNull(server.getAttribute(name, "CircuitState"));
+            metrics.setCircuitBreaker(new CircuitBreaker("test", 10, 50, 1000));
+            Assert.assertEquals("CLOSED", server.getAttribute(name, "CircuitState"));
+            TabularData circuit = (TabularData)server.getAttribute(name, "CircuitBreaker");
+            Assert.assertEquals(Long.valueOf(0), circuit.get(new Object[]{"rejected"}).get("value"));
+            //a second instance with the same name is not registered
+            EngineMetrics other = new EngineMetrics();
+            other.register("test-ml,engine");
+            other.unregister();
+            Assert.assertTrue(server.isRegistered(name));
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
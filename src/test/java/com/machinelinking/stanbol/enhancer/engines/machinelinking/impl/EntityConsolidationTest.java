@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.DC_RELATION;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_CONFIDENCE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_ENTITY_LABEL;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_ENTITY_REFERENCE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_ENTITY_TYPE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_START;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.clerezza.rdf.core.LiteralFactory;
+import org.apache.clerezza.rdf.core.MGraph;
+import org.apache.clerezza.rdf.core.NonLiteral;
+import org.apache.clerezza.rdf.core.PlainLiteral;
+import org.apache.clerezza.rdf.core.Triple;
+import org.apache.clerezza.rdf.core.TypedLiteral;
+import org.apache.clerezza.rdf.core.UriRef;
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.apache.stanbol.enhancer.servicesapi.rdf.NamespaceEnum;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.impl.MLKeyword.Mention;
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.impl.MLKeyword.Type;
+
+/**
+ * Tests that keywords resolving to the same DBPedia resource are written as
+ * a single EntityAnnotation.
+ */
+public class EntityConsolidationTest {
+
+    private static final String TEXT = "Barack Obama met Angela Merkel. Obama thanked Merkel.";
+
+    private static final UriRef RDFS_COMMENT = new UriRef(NamespaceEnum.rdfs + "comment");
+    private static final UriRef OBAMA = new UriRef(MLConstants.DBPEDIA_RESOURCE_PREFIX + "Barack_Obama");
+    private static final UriRef MERKEL = new UriRef(MLConstants.DBPEDIA_RESOURCE_PREFIX + "Angela_Merkel");
+    private static final Type AIRPEDIA_PERSON = new Type(MLConstants.AIRPEDIA_CLASS_PREFIX + "Person", "airpedia");
+    private static final Type SCHEMA_PERSON = new Type("http://schema.org/Person", "schema");
+
+    private MLAnnotateEnhancementEngine engine;
+
+    @Before
+    public void initStub() {
+        MLClientRegistry.setClientFactory(StubMLClient.factory(new StubMLClient(30 * 1000, 42){
+            @Override
+            public MLAnnotation annotate(String text, Map<String,Object> options) throws IOException {
+                super.annotate(text, options);
+                int obama = text.indexOf("Obama", 10);
+                return new MLAnnotation("en", Arrays.asList(
+                    keyword("Obama", "Barack_Obama", 0.5, "An other abstract", AIRPEDIA_PERSON,
+                        mention(text, obama, "Obama"), mention(text, 0, "Barack Obama")),
+                    keyword("Angela Merkel", "Angela_Merkel", 0.8, null, SCHEMA_PERSON,
+                        mention(text, 17, "Angela Merkel"), mention(text, text.indexOf("Merkel", 31), "Merkel")),
+                    keyword("Barack Obama", "Barack_Obama", 0.9, "The abstract", AIRPEDIA_PERSON,
+                        mention(text, 0, "Barack Obama"))),
+                    Collections.<MLTopic>emptyList());
+            }
+        }));
+    }
+
+    @After
+    public void deactivate() {
+        if(engine != null){
+            engine.deactivate(null);
+            engine = null;
+        }
+        MLClientRegistry.setClientFactory(null);
+    }
+
+    private static Mention mention(String text, int start, String form) {
+        Assert.assertEquals(form, text.substring(start, start + form.length()));
+        return new Mention(start, start + form.length(), form);
+    }
+
+    private static MLKeyword keyword(String form, String sensePage, double probability,
+            String _abstract, Type type, Mention...mentions) {
+        return new MLKeyword(form, sensePage, null, probability, Collections.singletonList(type),
+            _abstract, null, null, Arrays.asList(mentions));
+    }
+
+    private MGraph enhance() throws Exception {
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(EnhancementEngine.PROPERTY_NAME, "mlEntityConsolidationTest");
+        properties.put(MLConstants.APP_ID, "testId");
+        properties.put(MLConstants.APP_KEY, "testKey");
+        properties.put(MLConstants.CONNECTION_TIMEOUT, 30 * 1000);
+        properties.put(MLConstants.INCLUDE_ENTITY_DATA, true);
+        engine = new MLAnnotateEnhancementEngine();
+        engine.activate(new MockComponentContext(properties));
+        ContentItem ci = InMemoryContentItemFactory.getInstance().createContentItem(new StringSource(TEXT));
+        engine.computeEnhancements(ci);
+        return ci.getMetadata();
+    }
+
+    private static Set<NonLiteral> subjects(MGraph graph, UriRef property, UriRef value) {
+        Set<NonLiteral> subjects = new HashSet<NonLiteral>();
+        for(Iterator<Triple> it = graph.filter(null, property, value); it.hasNext();){
+            subjects.add(it.next().getSubject());
+        }
+        return subjects;
+    }
+
+    private static Triple first(MGraph graph, NonLiteral subject, UriRef property) {
+        Iterator<Triple> it = graph.filter(subject, property, null);
+        Assert.assertTrue(it.hasNext());
+        return it.next();
+    }
+
+    private static int count(MGraph graph, NonLiteral subject, UriRef property) {
+        int count = 0;
+        for(Iterator<?> it = graph.filter(subject, property, null); it.hasNext(); it.next()){
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testConsolidation() throws Exception {
+        MGraph graph = enhance();
+        Assert.assertEquals(2, count(graph, null, ENHANCER_ENTITY_REFERENCE));
+        //a single text annotation for each distinct mention
+        Assert.assertEquals(4, count(graph, null, ENHANCER_START));
+
+        Set<NonLiteral> obama = subjects(graph, ENHANCER_ENTITY_REFERENCE, OBAMA);
+        Assert.assertEquals(1, obama.size());
+        NonLiteral entityAnnotation = obama.iterator().next();
+        Assert.assertEquals(2, count(graph, entityAnnotation, DC_RELATION));
+        //label and confidence of the keyword with the highest probability
+        Triple label = first(graph, entityAnnotation, ENHANCER_ENTITY_LABEL);
+        Assert.assertEquals("Barack Obama", ((PlainLiteral)label.getObject()).getLexicalForm());
+        Triple confidence = first(graph, entityAnnotation, ENHANCER_CONFIDENCE);
+        Assert.assertEquals(0.9, LiteralFactory.getInstance().createObject(
+            Double.class, (TypedLiteral)confidence.getObject()), 0.01);
+        //entity data are written once
+        Assert.assertEquals(1, count(graph, OBAMA, RDFS_COMMENT));
+        Triple comment = first(graph, OBAMA, RDFS_COMMENT);
+        Assert.assertEquals("The abstract", ((PlainLiteral)comment.getObject()).getLexicalForm());
+
+        Set<NonLiteral> merkel = subjects(graph, ENHANCER_ENTITY_REFERENCE, MERKEL);
+        Assert.assertEquals(1, merkel.size());
+        Assert.assertEquals(2, count(graph, merkel.iterator().next(), DC_RELATION));
+    }
+
+    @Test
+    public void testTypes() throws Exception {
+        MGraph graph = enhance();
+        //Airpedia classes are converted to DBpedia ontology types
+        NonLiteral obama = subjects(graph, ENHANCER_ENTITY_REFERENCE, OBAMA).iterator().next();
+        Assert.assertEquals(new UriRef(MLConstants.DBPEDIA_ONTOLOGY_PREFIX + "Person"),
+            first(graph, obama, ENHANCER_ENTITY_TYPE).getObject());
+        //types of other resources are used as parsed
+        NonLiteral merkel = subjects(graph, ENHANCER_ENTITY_REFERENCE, MERKEL).iterator().next();
+        Assert.assertEquals(new UriRef(SCHEMA_PERSON.getUrl()),
+            first(graph, merkel, ENHANCER_ENTITY_TYPE).getObject());
+    }
+}
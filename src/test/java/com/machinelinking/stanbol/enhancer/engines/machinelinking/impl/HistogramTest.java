@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link Histogram} class.
+ */
+public class HistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for(long value : new long[]{0, 1, 7, 8, 9, 15, 16, 100, 1000, 123456789L, Long.MAX_VALUE}){
+            int bucket = Histogram.getBucket(value);
+            Assert.assertTrue(value <= Histogram.getUpperBound(bucket));
+            if(bucket > 0){
+                Assert.assertTrue(value > Histogram.getUpperBound(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram("ms");
+        Assert.assertEquals(0, histogram.getPercentile(0.99));
+        for(int i = 1; i <= 100; i++){
+            histogram.record(i);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(50.5, histogram.getMean(), 0.0001);
+        long p50 = histogram.getPercentile(0.5);
+        Assert.assertTrue(p50 >= 50 && p50 <= 50 * 1.25);
+        long p99 = histogram.getPercentile(0.99);
+        Assert.assertTrue(p99 >= 99 && p99 <= 100);
+    }
+}
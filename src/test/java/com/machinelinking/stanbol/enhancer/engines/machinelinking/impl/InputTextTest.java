@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the extraction of the text processed by the engines.
+ */
+public class InputTextTest {
+
+    @Test
+    public void testDecodedOnce() throws Exception {
+        String content = "Barack Obama is meeting Angela Merkel in Berlin.";
+        ContentItem ci = InMemoryContentItemFactory.getInstance().createContentItem(
+            new StringSource(content));
+        String text = Util.getInputText(ci);
+        Assert.assertEquals(content, text);
+        //the second engine gets the already decoded text
+        Assert.assertSame(text, Util.getInputText(ci));
+        //the decoded text is scoped to the content item
+        ContentItem other = InMemoryContentItemFactory.getInstance().createContentItem(
+            new StringSource(content));
+        Assert.assertNotSame(text, Util.getInputText(other));
+        ci.removePart(Util.DECODED_TEXT_URI);
+        Assert.assertNotSame(text, Util.getInputText(ci));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlankText() throws Exception {
+        Util.getInputText(InMemoryContentItemFactory.getInstance().createContentItem(
+            new StringSource(" \n\t ")));
+    }
+}
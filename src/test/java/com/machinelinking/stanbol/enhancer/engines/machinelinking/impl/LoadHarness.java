@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.ContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+
+/**
+ * Runs concurrent enhancement jobs through a list of engines (e.g. the
+ * language identification and the annotation engine) and reports the
+ * throughput and latency percentiles. Each job creates a content item for
+ * one of the texts and calls {@link EnhancementEngine#computeEnhancements(ContentItem)}
+ * of all engines that can enhance it.
+ */
+class LoadHarness {
+
+    private static final ContentItemFactory ciFactory = InMemoryContentItemFactory.getInstance();
+
+    private final List<EnhancementEngine> engines;
+    private final List<String> texts;
+
+    /**
+     * @param engines the engines called in the parsed order
+     * @param texts the texts used round-robin by the jobs
+     */
+    public LoadHarness(List<EnhancementEngine> engines, List<String> texts) {
+        this.engines = engines;
+        this.texts = texts;
+    }
+
+    /**
+     * Runs the jobs and waits for their completion
+     * @param threads the number of concurrent jobs
+     * @param jobs the number of jobs
+     * @return the result
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     */
+    public Result run(int threads, int jobs) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Result result = new Result(threads);
+        List<Future<?>> futures = new ArrayList<Future<?>>(jobs);
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < jobs; i++){
+            final String text = texts.get(i % texts.size());
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long jobStart = System.currentTimeMillis();
+                    try {
+                        ContentItem ci = ciFactory.createContentItem(new StringSource(text));
+                        for(EnhancementEngine engine : engines){
+                            if(engine.canEnhance(ci) != EnhancementEngine.CANNOT_ENHANCE){
+                                engine.computeEnhancements(ci);
+                            }
+                        }
+                        result.completed(System.currentTimeMillis() - jobStart, ci.getMetadata().size());
+                    } catch (Exception e) {
+                        result.failed(System.currentTimeMillis() - jobStart, e);
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        result.duration = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * The result of a load test run
+     */
+    static class Result {
+
+        private final int threads;
+        private final Histogram latency = new Histogram("ms");
+        private final Histogram triples = new Histogram("");
+        private final Map<String,Integer> errors = new TreeMap<String,Integer>();
+        private int completed;
+        private int failed;
+        private long duration;
+
+        Result(int threads) {
+            this.threads = threads;
+        }
+
+        synchronized void completed(long time, int triples) {
+            completed++;
+            latency.record(time);
+            this.triples.record(triples);
+        }
+
+        synchronized void failed(long time, Exception e) {
+            failed++;
+            latency.record(time);
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            String type = cause.getClass().getSimpleName();
+            Integer count = errors.get(type);
+            errors.put(type, count == null ? 1 : count + 1);
+        }
+
+        public synchronized int getCompleted() {
+            return completed;
+        }
+
+        public synchronized int getFailed() {
+            return failed;
+        }
+
+        /**
+         * The number of failed jobs by the simple name of the cause of the
+         * exception
+         */
+        public synchronized Map<String,Integer> getErrors() {
+            return new TreeMap<String,Integer>(errors);
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public Histogram getTriples() {
+            return triples;
+        }
+
+        /**
+         * The throughput in jobs per second
+         */
+        public synchronized double getThroughput() {
+            return duration <= 0 ? 0 : (completed + failed) * 1000d / duration;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("[threads: %d, completed: %d, failed: %d %s, duration: %dms, "
+                + "throughput: %.1f jobs/s, latency: %s, triples: %s]", threads, completed,
+                failed, errors, duration, getThroughput(), latency, triples);
+        }
+    }
+}
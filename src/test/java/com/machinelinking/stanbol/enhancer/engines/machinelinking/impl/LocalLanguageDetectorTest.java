@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.DC_LANGUAGE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_CONFIDENCE;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Iterator;
+
+import org.apache.clerezza.rdf.core.LiteralFactory;
+import org.apache.clerezza.rdf.core.MGraph;
+import org.apache.clerezza.rdf.core.PlainLiteral;
+import org.apache.clerezza.rdf.core.Triple;
+import org.apache.clerezza.rdf.core.TypedLiteral;
+import org.apache.clerezza.rdf.core.UriRef;
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+
+/**
+ * Tests the {@link LocalLanguageDetector} and its use by the
+ * {@link MLLanguageIdentifierEnhancementEngine}.
+ */
+public class LocalLanguageDetectorTest {
+
+    private static final String[][] TEXTS = {
+        {"de", "Angela Merkel trifft sich mit Barack Obama in Berlin, um über die Lage in der Ukraine zu sprechen."},
+        {"en", "Apple announced a new phone yesterday with a better camera and a longer battery life."},
+        {"es", "El presidente del gobierno se reunió ayer con los sindicatos en Madrid."},
+        {"fr", "Le président de la République a rencontré les syndicats hier soir à Paris."},
+        {"it", "Il presidente del consiglio ha incontrato i sindacati ieri sera a Roma."},
+        {"pt", "O primeiro-ministro reuniu-se ontem com os sindicatos em Lisboa."}
+    };
+
+    /**
+     * Texts in languages closely related to the detected ones
+     */
+    private static final String[][] REJECTED_TEXTS = {
+        {"ca", "Demà al matí el tren sortirà per última vegada cap a la frontera, perquè la via estarà tancada tota la setmana."},
+        {"gl", "Mañá pola mañá o tren sairá por última vez cara á fronteira, porque a vía vai estar pechada toda a semana."},
+        {"lb", "Muer de Moien fiert den Zuch fir d'lescht Kéier vun hei an d'Belsch, well d'Streck eng Woch laang zou ass."},
+        {"nl", "Morgenochtend rijdt de trein voor de laatste keer naar de grens, omdat het spoor een week lang gesloten is."}
+    };
+
+    /**
+     * The confidence recommended to activate the local detection
+     */
+    private static final double CONFIDENCE = 0.9;
+
+    private MLLanguageIdentifierEnhancementEngine engine;
+    private StubMLClient stub;
+
+    @After
+    public void deactivate() {
+        if(engine != null){
+            engine.deactivate(null);
+            engine = null;
+        }
+        MLClientRegistry.setClientFactory(null);
+    }
+
+    @Test
+    public void testDetect() {
+        LocalLanguageDetector detector = LocalLanguageDetector.getInstance();
+        for(String[] text : TEXTS){
+            LocalLanguageDetector.Detection detection = detector.detect(text[1]);
+            Assert.assertEquals(text[1], text[0], detection.getLang());
+            Assert.assertTrue(text[1] + ": " + detection, detection.getConfidence() >= CONFIDENCE);
+            Assert.assertTrue(detection.getConfidence() <= 1);
+        }
+    }
+
+    @Test
+    public void testLowConfidence() {
+        LocalLanguageDetector detector = LocalLanguageDetector.getInstance();
+        String[] texts = {
+            "Hello", //too short
+            "De minister heeft gisteren met de vakbonden gesproken over de nieuwe wet.",
+            "Statsministern träffade fackföreningarna i går för att diskutera den nya lagen.",
+            "Premier spotkał się wczoraj ze związkowcami w sprawie nowej ustawy.",
+            "Премьер-министр встретился вчера с профсоюзами."
+        };
+        for(String text : texts){
+            LocalLanguageDetector.Detection detection = detector.detect(text);
+            Assert.assertTrue(text + ": " + detection, detection.getConfidence() < CONFIDENCE);
+        }
+        Assert.assertNull(detector.detect(" 42 - 17 "));
+    }
+
+    @Test
+    public void testRejectedLanguages() {
+        LocalLanguageDetector detector = LocalLanguageDetector.getInstance();
+        for(String[] text : REJECTED_TEXTS){
+            LocalLanguageDetector.Detection detection = detector.detect(text[1]);
+            Assert.assertTrue(text[1] + ": " + detection, detection.getConfidence() < CONFIDENCE);
+        }
+    }
+
+    private MGraph enhance(Object localConfidence, String text) throws Exception {
+        stub = new StubMLClient(30 * 1000, 42);
+        MLClientRegistry.setClientFactory(StubMLClient.factory(stub));
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(EnhancementEngine.PROPERTY_NAME, "mlLocalLanguageTest");
+        properties.put(MLConstants.APP_ID, "testId");
+        properties.put(MLConstants.APP_KEY, "testKey");
+        properties.put(MLConstants.CONNECTION_TIMEOUT, 30 * 1000);
+        if(localConfidence != null){
+            properties.put(MLConstants.LANGUAGE_LOCAL_CONFIDENCE, localConfidence);
+        }
+        engine = new MLLanguageIdentifierEnhancementEngine();
+        engine.activate(new MockComponentContext(properties));
+        ContentItem ci = InMemoryContentItemFactory.getInstance().createContentItem(new StringSource(text));
+        engine.computeEnhancements(ci);
+        return ci.getMetadata();
+    }
+
+    private static Triple first(MGraph graph, UriRef property) {
+        Iterator<Triple> it = graph.filter(null, property, null);
+        Assert.assertTrue(it.hasNext());
+        return it.next();
+    }
+
+    private static double getConfidence(MGraph graph) {
+        return LiteralFactory.getInstance().createObject(Double.class, 
+            (TypedLiteral)first(graph, ENHANCER_CONFIDENCE).getObject());
+    }
+
+    private static String getLanguage(MGraph graph) {
+        return ((PlainLiteral)first(graph, DC_LANGUAGE).getObject()).getLexicalForm();
+    }
+
+    @Test
+    public void testEngineDefault() throws Exception {
+        MGraph graph = enhance(null, TEXTS[0][1]);
+        Assert.assertEquals("de", getLanguage(graph));
+        Assert.assertEquals(1, stub.getLangCalls());
+        Assert.assertEquals(1.0, getConfidence(graph), 0);
+    }
+
+    @Test
+    public void testEngineLocalDetection() throws Exception {
+        MGraph graph = enhance(CONFIDENCE, TEXTS[0][1]);
+        Assert.assertEquals("de", getLanguage(graph));
+        Assert.assertEquals(0, stub.getLangCalls());
+        double confidence = getConfidence(graph);
+        Assert.assertTrue(confidence >= CONFIDENCE && confidence <= 1);
+    }
+
+    @Test
+    public void testEngineRemoteFallback() throws Exception {
+        MGraph graph = enhance(CONFIDENCE, "Obama");
+        Assert.assertEquals("en", getLanguage(graph));
+        Assert.assertEquals(1, stub.getLangCalls());
+        Assert.assertEquals(1.0, getConfidence(graph), 0);
+    }
+
+    @Test
+    public void testEngineRejectedLanguages() throws Exception {
+        for(String[] text : REJECTED_TEXTS){
+            enhance(CONFIDENCE, text[1]);
+            Assert.assertEquals(text[1], 1, stub.getLangCalls());
+            deactivate();
+        }
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidConfidence() throws Exception {
+        enhance(1.5, TEXTS[0][1]);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for merging and shifting {@link MLAnnotation}s.
+ */
+public class MLAnnotationTest {
+
+    @Test
+    public void testShiftAndMerge() {
+        MLAnnotation chunk1 = new MLAnnotation("en", Arrays.asList(
+            keyword("Berlin", 0.6, 10, 16)), Arrays.asList(new MLTopic("t1", "T1", 0.2)));
+        MLAnnotation chunk2 = new MLAnnotation("en", Arrays.asList(
+            keyword("Berlin", 0.8, 5, 11), keyword("Paris", 0.5, 20, 25)),
+            Arrays.asList(new MLTopic("t1", "T1", 0.4)));
+        MLAnnotation merged = MLAnnotation.merge(Arrays.asList(chunk1, chunk2.shift(100)), "en");
+        Assert.assertEquals(2, merged.getKeywords().size());
+        MLKeyword berlin = merged.getKeywords().get(0);
+        Assert.assertEquals("Berlin", berlin.getSensePage());
+        Assert.assertEquals(0.8, berlin.getProbability(), 0.0001);
+        Assert.assertEquals(2, berlin.getMentions().size());
+        Assert.assertEquals(10, berlin.getMentions().get(0).getStart());
+        Assert.assertEquals(105, berlin.getMentions().get(1).getStart());
+        Assert.assertEquals(111, berlin.getMentions().get(1).getEnd());
+        Assert.assertEquals(120, merged.getKeywords().get(1).getMentions().get(0).getStart());
+        Assert.assertEquals(1, merged.getTopics().size());
+        Assert.assertEquals(0.4, merged.getTopics().get(0).getProbability(), 0.0001);
+        //the shifted chunk is a copy
+        Assert.assertEquals(5, chunk2.getKeywords().get(0).getMentions().get(0).getStart());
+    }
+
+    private static MLKeyword keyword(String page, double prob, int start, int end) {
+        return new MLKeyword(page, page, null, prob, null, null, null, null,
+            Collections.singletonList(new MLKeyword.Mention(start, end, page)));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link MLClientRegistry} class.
+ */
+public class MLClientRegistryTest {
+
+    @Test
+    public void testSharing() {
+        int size = MLClientRegistry.size();
+        MLClient client = MLClientRegistry.acquire("testId", "testKey", 1000);
+        Assert.assertSame(client, MLClientRegistry.acquire("testId", "testKey", 1000));
+        MLClient other = MLClientRegistry.acquire("testId", "testKey", 2000);
+        Assert.assertNotSame(client, other);
+        Assert.assertEquals(size + 2, MLClientRegistry.size());
+        MLClientRegistry.release(other);
+        MLClientRegistry.release(client);
+        //still used by the 2nd acquire
+        Assert.assertEquals(size + 1, MLClientRegistry.size());
+        Assert.assertSame(client, MLClientRegistry.acquire("testId", "testKey", 1000));
+        MLClientRegistry.release(client);
+        MLClientRegistry.release(client);
+        Assert.assertEquals(size, MLClientRegistry.size());
+        MLClient created = MLClientRegistry.acquire("testId", "testKey", 1000);
+        Assert.assertNotSame(client, created);
+        MLClientRegistry.release(created);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.stanbol.enhancer.servicesapi.EngineException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.machinelinking.api.client.APIClient;
+
+/**
+ * Test for the thread pool, deadline and hedging support of the {@link MLClient} class.
+ */
+public class MLClientTest {
+
+    private static MLClient client;
+
+    @BeforeClass
+    public static void init() {
+        client = new MLClient(new APIClient("testId", "testKey", 1000));
+    }
+
+    @AfterClass
+    public static void close() {
+        client.close();
+    }
+
+    /**
+     * The first call answers after the parsed delay, all others immediately
+     */
+    private static Callable<Integer> slowFirst(final long delay) {
+        final AtomicInteger calls = new AtomicInteger();
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int call = calls.incrementAndGet();
+                if(call == 1){
+                    Thread.sleep(delay);
+                }
+                return call;
+            }
+        };
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        Assert.assertEquals(Integer.valueOf(1), client.call(slowFirst(0), 1000));
+        try {
+            client.call(slowFirst(1000), 20);
+            Assert.fail("SocketTimeoutException expected");
+        } catch (SocketTimeoutException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testHedging() throws Exception {
+        Hedger hedger = new Hedger(0.9, 1);
+        hedger.startRequest(10);
+        //the hedged request wins
+        Assert.assertEquals(Integer.valueOf(2), client.call(slowFirst(1000), 5000, 10, hedger));
+        Assert.assertEquals(1, hedger.getHedgedCount());
+        Assert.assertEquals(1, hedger.getHedgeWinCount());
+        //no hedge if the first request answers in time
+        hedger.startRequest(10);
+        Assert.assertEquals(Integer.valueOf(1), client.call(slowFirst(0), 5000, 1000, hedger));
+        Assert.assertEquals(1, hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testHedgeBudget() throws Exception {
+        Hedger hedger = new Hedger(0.9, 0.5);
+        hedger.startRequest(10);
+        //0.5 hedged requests allowed
+        Assert.assertEquals(Integer.valueOf(1), client.call(slowFirst(50), 5000, 1, hedger));
+        Assert.assertEquals(0, hedger.getHedgedCount());
+        Assert.assertEquals(1, hedger.getBudgetExceededCount());
+        hedger.startRequest(10);
+        Assert.assertEquals(Integer.valueOf(2), client.call(slowFirst(1000), 5000, 1, hedger));
+        Assert.assertEquals(1, hedger.getHedgedCount());
+    }
+
+    @Test
+    public void testSaturatedPool() throws Exception {
+        MLClient bounded = new MLClient(new APIClient("testId", "testKey", 1000), 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<Thread> blocking = new Callable<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+                release.await();
+                return Thread.currentThread();
+            }
+        };
+        Callable<Thread> current = new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        };
+        try {
+            Future<Thread> running = bounded.submit(blocking);
+            Future<Thread> queued = bounded.submit(current);
+            //the pool and the queue are full: the request is rejected
+            Future<Thread> rejected = bounded.submit(current);
+            Assert.assertTrue(rejected.isDone());
+            assertRejected(rejected);
+            try {
+                bounded.call(current, 1000);
+                Assert.fail("EngineException expected");
+            } catch (EngineException e) {
+                //expected
+            }
+            release.countDown();
+            Assert.assertNotSame(Thread.currentThread(), running.get());
+            Assert.assertNotSame(Thread.currentThread(), queued.get());
+        } finally {
+            release.countDown();
+            bounded.close();
+        }
+        assertRejected(bounded.submit(current));
+    }
+
+    private static void assertRejected(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+            Assert.fail("EngineException expected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof EngineException);
+        }
+    }
+
+    @Test
+    public void testSaturatedHedge() throws Exception {
+        MLClient bounded = new MLClient(new APIClient("testId", "testKey", 1000), 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        bounded.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                release.await();
+                return null;
+            }
+        });
+        new Thread(){
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    //release now
+                }
+                release.countDown();
+            }
+        }.start();
+        Hedger hedger = new Hedger(0.9, 1);
+        hedger.startRequest(10);
+        try {
+            //the request is queued and the hedged request is rejected
+            Assert.assertEquals(Integer.valueOf(1), bounded.call(slowFirst(0), 5000, 1, hedger));
+            Assert.assertEquals(0, hedger.getHedgedCount());
+        } finally {
+            release.countDown();
+            bounded.close();
+        }
+    }
+}
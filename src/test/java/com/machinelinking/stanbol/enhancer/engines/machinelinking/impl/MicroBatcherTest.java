@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.impl.MLKeyword.Mention;
+
+/**
+ * Test for the {@link MicroBatcher} class.
+ */
+public class MicroBatcherTest {
+
+    private static final String ENTITY = "Paris";
+
+    /**
+     * Annotates all mentions of {@link #ENTITY} and counts the requests
+     */
+    private static class TestAnnotator implements MicroBatcher.Annotator {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        private final Map<String,MLAnnotation> annotated = 
+                Collections.synchronizedMap(new HashMap<String,MLAnnotation>());
+
+        @Override
+        public MLAnnotation annotate(String text, Map<String,Object> options) {
+            requests.incrementAndGet();
+            List<Mention> mentions = new ArrayList<Mention>();
+            int index = text.indexOf(ENTITY);
+            while(index >= 0){
+                mentions.add(new Mention(index, index + ENTITY.length(), ENTITY));
+                index = text.indexOf(ENTITY, index + 1);
+            }
+            List<MLKeyword> keywords = new ArrayList<MLKeyword>();
+            if(!mentions.isEmpty()){
+                keywords.add(new MLKeyword(ENTITY, ENTITY, ENTITY, 0.9, 
+                    Collections.<MLKeyword.Type>emptyList(), null, null, null, mentions));
+            }
+            return new MLAnnotation("en", keywords, Collections.<MLTopic>emptyList());
+        }
+
+        @Override
+        public void annotated(String text, Map<String,Object> options, MLAnnotation annotation) {
+            annotated.put(text, annotation);
+        }
+    }
+
+    @Test
+    public void testBatchSlicing() throws Exception {
+        TestAnnotator annotator = new TestAnnotator();
+        MicroBatcher batcher = new MicroBatcher("test", annotator, 100, 1000, 50);
+        Map<String,Object> options = Collections.<String,Object>singletonMap("lang", "en");
+        try {
+            Future<MLAnnotation> first = batcher.submit("I like Paris.", options);
+            Future<MLAnnotation> second = batcher.submit("Nothing to find here.", options);
+            Future<MLAnnotation> third = batcher.submit("Paris is not Paris, Texas.", options);
+            MLAnnotation annotation = first.get();
+            Assert.assertEquals(1, annotation.getKeywords().size());
+            Mention mention = annotation.getKeywords().get(0).getMentions().get(0);
+            Assert.assertEquals(7, mention.getStart());
+            Assert.assertEquals(12, mention.getEnd());
+            Assert.assertTrue(second.get().getKeywords().isEmpty());
+            annotation = third.get();
+            Assert.assertEquals(1, annotation.getKeywords().size());
+            List<Mention> mentions = annotation.getKeywords().get(0).getMentions();
+            Assert.assertEquals(2, mentions.size());
+            Assert.assertEquals(0, mentions.get(0).getStart());
+            Assert.assertEquals(13, mentions.get(1).getStart());
+            Assert.assertEquals(1, annotator.requests.get());
+            Assert.assertEquals(3, annotator.annotated.size());
+            Assert.assertEquals(1, batcher.getBatchCount());
+            Assert.assertEquals(3, batcher.getTextCount());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testFullBatchIsSent() throws Exception {
+        TestAnnotator annotator = new TestAnnotator();
+        //long wait so that only a full batch is sent
+        MicroBatcher batcher = new MicroBatcher("test", annotator, 20, 30, 60000);
+        Map<String,Object> options = Collections.<String,Object>singletonMap("lang", "en");
+        Future<MLAnnotation> second;
+        try {
+            Future<MLAnnotation> first = batcher.submit("Paris in spring", options);
+            //does not fit: the first batch is sent
+            second = batcher.submit("Paris in autumn", options);
+            Assert.assertEquals(1, first.get().getKeywords().size());
+            Assert.assertFalse(second.isDone());
+        } finally {
+            batcher.close();
+        }
+        //close sends pending batches
+        Assert.assertEquals(1, second.get().getKeywords().size());
+        Assert.assertEquals(2, annotator.requests.get());
+    }
+
+    @Test
+    public void testOptionsAreNotMixed() throws Exception {
+        TestAnnotator annotator = new TestAnnotator();
+        MicroBatcher batcher = new MicroBatcher("test", annotator, 100, 1000, 10);
+        try {
+            Future<MLAnnotation> en = batcher.submit("Paris", 
+                Collections.<String,Object>singletonMap("lang", "en"));
+            Future<MLAnnotation> it = batcher.submit("Parigi", 
+                Collections.<String,Object>singletonMap("lang", "it"));
+            Assert.assertEquals(1, en.get().getKeywords().size());
+            Assert.assertTrue(it.get().getKeywords().isEmpty());
+            Assert.assertEquals(2, batcher.getBatchCount());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testSubmitAfterClose() throws Exception {
+        TestAnnotator annotator = new TestAnnotator();
+        MicroBatcher batcher = new MicroBatcher("test", annotator, 100, 1000, 60000);
+        batcher.close();
+        Future<MLAnnotation> result = batcher.submit("I like Paris.", 
+            Collections.<String,Object>singletonMap("lang", "en"));
+        //annotated by the calling thread
+        Assert.assertTrue(result.isDone());
+        Assert.assertEquals(1, result.get().getKeywords().size());
+        Assert.assertEquals(1, annotator.requests.get());
+        Assert.assertEquals(0, batcher.getBatchCount());
+    }
+
+    @Test
+    public void testFailedBatch() throws Exception {
+        MicroBatcher batcher = new MicroBatcher("test", new TestAnnotator() {
+            @Override
+            public MLAnnotation annotate(String text, Map<String,Object> options) {
+                throw new IllegalStateException("test");
+            }
+        }, 100, 1000, 10);
+        try {
+            Future<MLAnnotation> result = batcher.submit("Paris", 
+                Collections.<String,Object>singletonMap("lang", "en"));
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("ExecutionException expected");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testFailedCallback() throws Exception {
+        final AtomicInteger callbacks = new AtomicInteger();
+        MicroBatcher batcher = new MicroBatcher("test", new TestAnnotator() {
+            @Override
+            public void annotated(String text, Map<String,Object> options, MLAnnotation annotation) {
+                callbacks.incrementAndGet();
+                throw new IllegalStateException("test");
+            }
+        }, 100, 1000, 10);
+        Map<String,Object> options = Collections.<String,Object>singletonMap("lang", "en");
+        try {
+            Future<MLAnnotation> first = batcher.submit("I like Paris.", options);
+            Future<MLAnnotation> second = batcher.submit("Paris in spring", options);
+            //all texts of the batch are completed
+            Assert.assertEquals(1, first.get(5, TimeUnit.SECONDS).getKeywords().size());
+            Assert.assertEquals(1, second.get(5, TimeUnit.SECONDS).getKeywords().size());
+            Assert.assertEquals(2, callbacks.get());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidConfig() {
+        new MicroBatcher("test", new TestAnnotator(), 100, 50, 10);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.DC_RELATION;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_END;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_ENTITY_REFERENCE;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_SELECTED_TEXT;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_SELECTION_CONTEXT;
+import static org.apache.stanbol.enhancer.servicesapi.rdf.Properties.ENHANCER_START;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Iterator;
+
+import org.apache.clerezza.rdf.core.MGraph;
+import org.apache.clerezza.rdf.core.UriRef;
+import org.apache.stanbol.enhancer.contentitem.inmemory.InMemoryContentItemFactory;
+import org.apache.stanbol.enhancer.servicesapi.ContentItem;
+import org.apache.stanbol.enhancer.servicesapi.EnhancementEngine;
+import org.apache.stanbol.enhancer.servicesapi.impl.StringSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+
+/**
+ * Test for the {@link OutputProfile}s of the {@link MLAnnotateEnhancementEngine}
+ * using the {@link StubMLClient}.
+ */
+public class OutputProfileTest {
+
+    private static final String TEXT = "President Obama is meeting Angela Merkel in Berlin. "
+            + "Obama and Merkel talk about Europe.";
+    /**
+     * President, Obama, Angela, Merkel, Berlin, Obama, Merkel, Europe
+     */
+    private static final int MENTIONS = 8;
+
+    private MLAnnotateEnhancementEngine engine;
+
+    @Before
+    public void initStub() {
+        MLClientRegistry.setClientFactory(StubMLClient.factory(new StubMLClient(30 * 1000, 42)));
+    }
+
+    @After
+    public void deactivate() {
+        if(engine != null){
+            engine.deactivate(null);
+            engine = null;
+        }
+        MLClientRegistry.setClientFactory(null);
+    }
+
+    private MGraph enhance(String profile) throws Exception {
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(EnhancementEngine.PROPERTY_NAME, "mlOutputProfileTest");
+        properties.put(MLConstants.APP_ID, "testId");
+        properties.put(MLConstants.APP_KEY, "testKey");
+        properties.put(MLConstants.CONNECTION_TIMEOUT, 30 * 1000);
+        if(profile != null){
+            properties.put(MLConstants.OUTPUT_PROFILE, profile);
+        }
+        engine = new MLAnnotateEnhancementEngine();
+        engine.activate(new MockComponentContext(properties));
+        ContentItem ci = InMemoryContentItemFactory.getInstance().createContentItem(new StringSource(TEXT));
+        engine.computeEnhancements(ci);
+        return ci.getMetadata();
+    }
+
+    private static int count(MGraph graph, UriRef property) {
+        int count = 0;
+        for(Iterator<?> it = graph.filter(null, property, null); it.hasNext(); it.next()){
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        MGraph graph = enhance(null);
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_START));
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_SELECTED_TEXT));
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_SELECTION_CONTEXT));
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        MGraph graph = enhance("compact");
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_END));
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_SELECTED_TEXT));
+        Assert.assertEquals(0, count(graph, ENHANCER_SELECTION_CONTEXT));
+    }
+
+    @Test
+    public void testMinimal() throws Exception {
+        MGraph full = enhance("full");
+        deactivate();
+        initStub();
+        MGraph graph = enhance("Minimal");
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_START));
+        Assert.assertEquals(MENTIONS, count(graph, ENHANCER_END));
+        Assert.assertEquals(0, count(graph, ENHANCER_SELECTED_TEXT));
+        Assert.assertEquals(0, count(graph, ENHANCER_SELECTION_CONTEXT));
+        //entity references and the relations to the mentions are kept
+        Assert.assertEquals(count(full, ENHANCER_ENTITY_REFERENCE), count(graph, ENHANCER_ENTITY_REFERENCE));
+        Assert.assertEquals(count(full, DC_RELATION), count(graph, DC_RELATION));
+        Assert.assertTrue(graph.size() < full.size());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidProfile() throws Exception {
+        enhance("tiny");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link RateLimiter} class.
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void testBurstAndRate() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 100, 5, 0, 1000);
+        long start = System.nanoTime();
+        for(int i = 0; i < 5; i++){
+            Assert.assertTrue(limiter.acquire());
+        }
+        Assert.assertEquals(0, limiter.getDelayedCount());
+        //the 6th request needs to wait for the next token (10ms)
+        Assert.assertTrue(limiter.acquire());
+        Assert.assertEquals(1, limiter.getDelayedCount());
+        Assert.assertTrue(System.nanoTime() - start >= 5000000);
+    }
+
+    @Test
+    public void testReject() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 1, 1, 0, 10);
+        Assert.assertTrue(limiter.acquire());
+        Assert.assertFalse(limiter.acquire());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testPerDay() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 100, 100, 2, 1000);
+        Assert.assertTrue(limiter.acquire());
+        Assert.assertTrue(limiter.acquire());
+        Assert.assertFalse(limiter.acquire());
+    }
+
+    @Test
+    public void testBackoff() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 100, 100, 0, 10);
+        limiter.throttled();
+        //blocked for MIN_BACKOFF (longer as the max wait)
+        Assert.assertFalse(limiter.acquire());
+        Assert.assertEquals(1, limiter.getThrottledCount());
+    }
+
+    @Test
+    public void testSharing() {
+        RateLimiter limiter = RateLimiter.acquire("sharedTest", 10, 0, 0, 100);
+        Assert.assertSame(limiter, RateLimiter.acquire("sharedTest", 10, 0, 0, 100));
+        Assert.assertNotSame(limiter, RateLimiter.acquire("otherTest", 10, 0, 0, 100));
+        RateLimiter.release(limiter);
+        RateLimiter.release(limiter);
+        Assert.assertNotSame(limiter, RateLimiter.acquire("sharedTest", 10, 0, 0, 100));
+    }
+
+    @Test
+    public void testThrottledDetection() {
+        Assert.assertTrue(Util.isThrottled(new IOException(
+            "Server returned HTTP response code: 429 for URL: http://api.machinelinking.com/annotate")));
+        Assert.assertTrue(Util.isThrottled(new RuntimeException(new IOException("Too Many Requests"))));
+        Assert.assertTrue(Util.isThrottled(new IOException("HTTP/1.1 429")));
+        Assert.assertFalse(Util.isThrottled(new IOException("Connection refused")));
+        //other numbers and messages containing 429
+        Assert.assertFalse(Util.isThrottled(new SocketTimeoutException("Read timed out after 4290ms")));
+        Assert.assertFalse(Util.isThrottled(new IOException(
+            "Server returned HTTP response code: 500 for URL: http://api.machinelinking.com/annotate?id=1429")));
+        Assert.assertFalse(Util.isThrottled(new IOException("Text limit exceeded")));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link RequestCoalescer} class.
+ */
+public class RequestCoalescerTest {
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        final RequestCoalescer<String> coalescer = new RequestCoalescer<String>();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> request = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                calls.incrementAndGet();
+                release.await(10, TimeUnit.SECONDS);
+                return "result";
+            }
+        };
+        int numCallers = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(numCallers);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for(int i = 0; i < numCallers; i++){
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return coalescer.execute("key", request);
+                    }
+                }));
+            }
+            //wait until all callers are waiting for the pending request
+            long deadline = System.currentTimeMillis() + 10000;
+            while(coalescer.getCoalescedCount() < numCallers - 1 &&
+                    System.currentTimeMillis() < deadline){
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for(Future<String> result : results){
+                Assert.assertEquals("result", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(numCallers - 1, coalescer.getCoalescedCount());
+        Assert.assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test(expected=IOException.class)
+    public void testExceptionIsPropagated() throws Exception {
+        new RequestCoalescer<String>().execute("key", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new IOException("test");
+            }
+        });
+    }
+}
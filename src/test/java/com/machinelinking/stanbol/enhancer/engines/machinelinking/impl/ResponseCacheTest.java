@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link ResponseCache} class.
+ */
+public class ResponseCacheTest {
+
+    @Test
+    public void testLruEviction() {
+        ResponseCache<String> cache = new ResponseCache<String>(2, 0, 0);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1);
+        Assert.assertEquals("A", cache.get("a")); //a is now the most recently used
+        cache.put("c", "C", 1);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("A", cache.get("a"));
+        Assert.assertEquals("C", cache.get("c"));
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(3, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testSizeLimit() {
+        ResponseCache<String> cache = new ResponseCache<String>(100, 10, 0);
+        cache.put("a", "A", 4);
+        cache.put("b", "B", 4);
+        cache.put("c", "C", 4);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(8, cache.getBytes());
+        Assert.assertNull(cache.get("a"));
+        //values bigger as the cache are not cached
+        cache.put("d", "D", 11);
+        Assert.assertNull(cache.get("d"));
+        Assert.assertEquals(8, cache.getBytes());
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        ResponseCache<String> cache = new ResponseCache<String>(10, 0, 1);
+        cache.put("a", "A", 1);
+        Thread.sleep(10);
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(1, cache.getExpirationCount());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCacheKey() {
+        Map<String,Object> options = new HashMap<String,Object>();
+        options.put("lang", "en");
+        options.put("topic", Boolean.TRUE);
+        Map<String,Object> other = new HashMap<String,Object>();
+        other.put("topic", Boolean.TRUE);
+        other.put("lang", "en");
+        Assert.assertEquals(Util.createCacheKey("some text", options),
+            Util.createCacheKey("some text", other));
+        Assert.assertFalse(Util.createCacheKey("some text", options).equals(
+            Util.createCacheKey("other text", options)));
+        other.put("lang", "de");
+        Assert.assertFalse(Util.createCacheKey("some text", options).equals(
+            Util.createCacheKey("some text", other)));
+    }
+}
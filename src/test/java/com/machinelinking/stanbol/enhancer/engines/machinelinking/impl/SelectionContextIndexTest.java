@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.util.Random;
+
+import org.apache.clerezza.rdf.core.Language;
+import org.apache.stanbol.enhancer.servicesapi.helper.EnhancementEngineHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link SelectionContextIndex} calculates the same contexts
+ * as the {@link EnhancementEngineHelper}.
+ */
+public class SelectionContextIndexTest {
+
+    private static final String TEXT = "Barack Obama is meeting Angela Merkel in Berlin. "
+            + "The talks cover the economic situation in Europe, the relations with Russia "
+            + "and the situation in the Middle East. Obama and Merkel will hold a press "
+            + "conference in the afternoon.";
+
+    private static void assertSameAsHelper(String text, SelectionContextIndex index, int start, int end) {
+        Assert.assertEquals("context of [" + start + "," + end + ")",
+            EnhancementEngineHelper.getSelectionContext(text, text.substring(start, end), start),
+            index.getSelectionContext(start, end));
+    }
+
+    @Test
+    public void testSameAsHelper() {
+        SelectionContextIndex index = new SelectionContextIndex(TEXT, null);
+        for(int start = 0; start < TEXT.length(); start++){
+            for(int end = start + 1; end <= Math.min(TEXT.length(), start + 20); end++){
+                assertSameAsHelper(TEXT, index, start, end);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomTexts() {
+        Random random = new Random(42);
+        for(int t = 0; t < 50; t++){
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(500);
+            for(int i = 0; i < length; i++){
+                //long sections without spaces and some line breaks
+                int r = random.nextInt(20);
+                sb.append(r == 0 ? ' ' : r == 1 ? '\n' : (char)('a' + random.nextInt(26)));
+            }
+            String text = sb.toString();
+            SelectionContextIndex index = new SelectionContextIndex(text, null);
+            for(int m = 0; m < 50 && length > 0; m++){
+                int start = random.nextInt(length);
+                int end = start + 1 + random.nextInt(Math.min(30, length - start));
+                assertSameAsHelper(text, index, start, end);
+            }
+        }
+    }
+
+    /**
+     * The engine calculates the end of the context based on the form of the
+     * mention. The form may differ from the text of the span (e.g. if the
+     * service normalizes white spaces) or even exceed the text.
+     */
+    @Test
+    public void testFormLength() {
+        SelectionContextIndex index = new SelectionContextIndex(TEXT, null);
+        int start = TEXT.indexOf("Merkel");
+        String[] forms = new String[]{"Merkel", "Merkel  in   Berlin", "Merkel in Berlin. The talks", "M",
+                "Angela Merkel"};
+        for(String form : forms){
+            Assert.assertEquals(form, EnhancementEngineHelper.getSelectionContext(TEXT, form, start),
+                index.getSelectionContext(start, start + form.length()));
+        }
+        int end = TEXT.lastIndexOf(' ') + 1;
+        String form = TEXT.substring(end) + " (press conference)";
+        Assert.assertEquals(EnhancementEngineHelper.getSelectionContext(TEXT, form, end),
+            index.getSelectionContext(end, end + form.length()));
+    }
+
+    @Test
+    public void testSharedLiterals() {
+        SelectionContextIndex index = new SelectionContextIndex(TEXT, new Language("en"));
+        int obama = TEXT.indexOf("Obama");
+        Assert.assertSame(index.getSelectionContextLiteral(obama, obama + 5),
+            index.getSelectionContextLiteral(obama, obama + 5));
+        int merkel = TEXT.lastIndexOf("Merkel");
+        Assert.assertNotSame(index.getSelectionContextLiteral(obama, obama + 5),
+            index.getSelectionContextLiteral(merkel, merkel + 6));
+        Assert.assertEquals(2, index.getLiteralCount());
+        Assert.assertEquals(new Language("en"), 
+            index.getSelectionContextLiteral(obama, obama + 5).getLanguage());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link SlidingHistogram} class.
+ */
+public class SlidingHistogramTest {
+
+    private static final long WINDOW = 60000;
+
+    @Test
+    public void testRotation() {
+        SlidingHistogram histogram = new SlidingHistogram("ms", WINDOW);
+        long start = System.currentTimeMillis();
+        histogram.record(1000);
+        Assert.assertEquals(1, histogram.getHistogram().getCount());
+        histogram.rotate(start + WINDOW);
+        histogram.record(10);
+        //values of the previous window are still included
+        Assert.assertEquals(2, histogram.getHistogram().getCount());
+        Assert.assertEquals(1000, histogram.getHistogram().getMax());
+        histogram.rotate(start + 2 * WINDOW);
+        //only the value recorded in the last window remains
+        Assert.assertEquals(1, histogram.getHistogram().getCount());
+        Assert.assertEquals(10, histogram.getHistogram().getMax());
+    }
+
+    @Test
+    public void testIdle() {
+        SlidingHistogram histogram = new SlidingHistogram("ms", WINDOW);
+        histogram.record(1000);
+        histogram.rotate(System.currentTimeMillis() + 2 * WINDOW);
+        Assert.assertEquals(0, histogram.getHistogram().getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new SlidingHistogram("ms", 0);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.machinelinking.api.client.APIClient;
+import com.machinelinking.api.client.GuessedLanguageResponse;
+import com.machinelinking.api.client.ParamsValidator;
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.MLConstants;
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.impl.MLKeyword.Mention;
+
+/**
+ * In-process stand-in for the <i>MachineLinking</i> service. Answers 
+ * <b>/annotate</b> and <b>/lang</b> requests without network access:<ul>
+ * <li> every capitalized word with more than three chars is annotated as
+ *      keyword
+ * <li> texts containing common German words are German, all others English
+ * </ul>
+ * Latencies are uniformly distributed between the configured minimum and
+ * maximum. A configurable share of requests is slow, fails or is throttled.
+ * Requests slower as the connection timeout fail with a
+ * {@link SocketTimeoutException}.
+ */
+class StubMLClient extends MLClient {
+
+    private static final Pattern KEYWORD = Pattern.compile("\\b\\p{Lu}[\\p{L}-]{3,}");
+    private static final Pattern GERMAN = Pattern.compile("\\b(der|die|das|und|von|ist|nicht)\\b");
+
+    private final int connTimeout;
+    private final Random random;
+
+    private volatile long minLatency;
+    private volatile long maxLatency;
+    private volatile double slowRate;
+    private volatile long slowLatency;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+
+    private final AtomicInteger annotateCalls = new AtomicInteger();
+    private final AtomicInteger langCalls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    /**
+     * Creates a stub answering without delay and errors
+     * @param connTimeout the connection timeout in milliseconds
+     * @param seed the seed used for latencies and errors
+     */
+    public StubMLClient(int connTimeout, long seed) {
+        super(new APIClient("stub", "stub", connTimeout));
+        this.connTimeout = connTimeout;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Creates a factory for the {@link MLClientRegistry} returning the parsed
+     * stub for all configurations
+     */
+    public static MLClientRegistry.ClientFactory factory(final StubMLClient stub) {
+        return new MLClientRegistry.ClientFactory() {
+            @Override
+            public MLClient create(String appId, String appKey, int connTimeout) {
+                return stub;
+            }
+        };
+    }
+
+    /**
+     * Sets the uniform distribution of latencies
+     * @param min the minimum latency in milliseconds
+     * @param max the maximum latency in milliseconds
+     * @return this stub
+     */
+    public StubMLClient setLatency(long min, long max) {
+        this.minLatency = min;
+        this.maxLatency = Math.max(min, max);
+        return this;
+    }
+
+    /**
+     * Sets the share of slow requests (e.g. to test deadlines and hedging)
+     * @param rate the share of slow requests in the range <code>[0..1]</code>
+     * @param latency the latency of slow requests in milliseconds
+     * @return this stub
+     */
+    public StubMLClient setSlowRequests(double rate, long latency) {
+        this.slowRate = rate;
+        this.slowLatency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the share of failing requests
+     * @param errorRate the share of requests failing with a server error
+     * @param throttleRate the share of requests failing with HTTP status 429
+     * @return this stub
+     */
+    public StubMLClient setErrors(double errorRate, double throttleRate) {
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        return this;
+    }
+
+    @Override
+    public MLAnnotation annotate(String text, Map<String,Object> options) throws IOException {
+        annotateCalls.incrementAndGet();
+        respond();
+        Object lang = options == null ? null : options.get(ParamsValidator.lang);
+        return createAnnotation(text, lang == null ? detectLanguage(text) : lang.toString());
+    }
+
+    @Override
+    public GuessedLanguageResponse guessLanguage(String text) throws IOException {
+        langCalls.incrementAndGet();
+        respond();
+        final String lang = detectLanguage(text);
+        return new GuessedLanguageResponse(){
+            @Override
+            public String getLang() {
+                return lang;
+            }
+        };
+    }
+
+    /**
+     * Simulates the latency and errors of a request
+     */
+    private void respond() throws IOException {
+        long latency;
+        double outcome;
+        synchronized (random) {
+            latency = random.nextDouble() < slowRate ? slowLatency : 
+                minLatency + (long)(random.nextDouble() * (maxLatency - minLatency));
+            outcome = random.nextDouble();
+        }
+        int current = active.incrementAndGet();
+        int max = maxActive.get();
+        while(current > max && !maxActive.compareAndSet(max, current)){
+            max = maxActive.get();
+        }
+        try {
+            Thread.sleep(Math.min(latency, connTimeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("request cancelled");
+        } finally {
+            active.decrementAndGet();
+        }
+        if(latency > connTimeout){
+            failures.incrementAndGet();
+            throw new SocketTimeoutException("Read timed out");
+        } else if(outcome < errorRate){
+            failures.incrementAndGet();
+            throw new IOException("Server returned HTTP response code: 500");
+        } else if(outcome < errorRate + throttleRate){
+            failures.incrementAndGet();
+            throw new IOException("Server returned HTTP response code: 429 Too Many Requests");
+        }
+    }
+
+    static String detectLanguage(String text) {
+        return GERMAN.matcher(text).find() ? "de" : "en";
+    }
+
+    static MLAnnotation createAnnotation(String text, String lang) {
+        Map<String,List<Mention>> mentions = new LinkedHashMap<String,List<Mention>>();
+        Matcher matcher = KEYWORD.matcher(text);
+        while(matcher.find()){
+            List<Mention> keywordMentions = mentions.get(matcher.group());
+            if(keywordMentions == null){
+                keywordMentions = new ArrayList<Mention>();
+                mentions.put(matcher.group(), keywordMentions);
+            }
+            keywordMentions.add(new Mention(matcher.start(), matcher.end(), matcher.group()));
+        }
+        List<MLKeyword> keywords = new ArrayList<MLKeyword>(mentions.size());
+        for(Map.Entry<String,List<Mention>> entry : mentions.entrySet()){
+            keywords.add(new MLKeyword(entry.getKey(), entry.getKey(), null, 0.8,
+                Collections.singletonList(new MLKeyword.Type(MLConstants.AIRPEDIA_CLASS_PREFIX + "Thing", "airpedia")),
+                null, null, null, entry.getValue()));
+        }
+        return new MLAnnotation(lang, keywords, Collections.singletonList(
+            new MLTopic(MLConstants.AIRPEDIA_TOPIC_PREFIX + "Politics", "Politics", 0.7)));
+    }
+
+    public int getAnnotateCalls() {
+        return annotateCalls.get();
+    }
+
+    public int getLangCalls() {
+        return langCalls.get();
+    }
+
+    /**
+     * The number of failed requests (errors, throttled and timed out)
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * The maximum number of concurrent requests
+     */
+    public int getMaxActive() {
+        return maxActive.get();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link TextChunker} class.
+ */
+public class TextChunkerTest {
+
+    @Test
+    public void testShortText() {
+        List<int[]> chunks = TextChunker.chunk("A short text.", 100, null, "en");
+        Assert.assertEquals(1, chunks.size());
+        Assert.assertArrayEquals(new int[]{0, 13}, chunks.get(0));
+    }
+
+    @Test
+    public void testSentenceBoundaries() {
+        String text = "This is the first sentence. This is the second one. And a third.";
+        List<int[]> chunks = TextChunker.chunk(text, 55, null, "en");
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals("This is the first sentence. This is the second one. ",
+            text.substring(chunks.get(0)[0], chunks.get(0)[1]));
+        Assert.assertEquals("And a third.", text.substring(chunks.get(1)[0], chunks.get(1)[1]));
+    }
+
+    @Test
+    public void testLongSentence() {
+        String text = "a very long sentence without any sentence boundary";
+        List<int[]> chunks = TextChunker.chunk(text, 20, null, "en");
+        assertConsecutive(text, chunks, 20);
+        for(int[] chunk : chunks){ //cut at white spaces
+            Assert.assertTrue(chunk[1] == text.length() || text.charAt(chunk[1] - 1) == ' ');
+        }
+    }
+
+    @Test
+    public void testLongText() throws IOException {
+        String text = IOUtils.toString(getClass().getResourceAsStream("text1.txt"));
+        assertConsecutive(text, TextChunker.chunk(text, 500, null, "en"), 500);
+        text = IOUtils.toString(getClass().getResourceAsStream("text_de.txt"));
+        assertConsecutive(text, TextChunker.chunk(text, 300, null, "de"), 300);
+    }
+
+    private void assertConsecutive(String text, List<int[]> chunks, int maxChunkSize) {
+        int end = 0;
+        for(int[] chunk : chunks){
+            Assert.assertEquals(end, chunk[0]);
+            Assert.assertTrue(chunk[1] > chunk[0]);
+            Assert.assertTrue(chunk[1] - chunk[0] <= maxChunkSize);
+            end = chunk[1];
+        }
+        Assert.assertEquals(text.length(), end);
+    }
+}
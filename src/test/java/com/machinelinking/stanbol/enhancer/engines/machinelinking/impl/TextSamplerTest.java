@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.machinelinking.stanbol.enhancer.engines.machinelinking.impl.TextSampler.Strategy;
+
+/**
+ * Test for the {@link TextSampler} class.
+ */
+public class TextSamplerTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testShortText() {
+        List<String> samples = TextSampler.sample("A short text", 100, Strategy.WINDOWS, 3);
+        Assert.assertEquals(1, samples.size());
+        Assert.assertEquals("A short text", samples.get(0));
+    }
+
+    @Test
+    public void testHead() throws IOException {
+        String text = IOUtils.toString(getClass().getResourceAsStream("text_de.txt"), "UTF-8");
+        List<String> samples = TextSampler.sample(text, 200, Strategy.HEAD, 3);
+        Assert.assertEquals(1, samples.size());
+        Assert.assertTrue(samples.get(0).getBytes(UTF8).length <= 200);
+        Assert.assertTrue(text.startsWith(samples.get(0)));
+    }
+
+    @Test
+    public void testWindows() throws IOException {
+        String text = IOUtils.toString(getClass().getResourceAsStream("text1.txt"), "UTF-8");
+        List<String> samples = TextSampler.sample(text, 300, Strategy.WINDOWS, 3);
+        Assert.assertEquals(3, samples.size());
+        int bytes = 0;
+        int lastIndex = -1;
+        for(String sample : samples){
+            bytes = bytes + sample.getBytes(UTF8).length;
+            int index = text.indexOf(sample);
+            Assert.assertTrue(index > lastIndex);
+            //samples are cut at white spaces
+            Assert.assertTrue(index == 0 || Character.isWhitespace(text.charAt(index - 1)));
+            lastIndex = index;
+        }
+        Assert.assertTrue(bytes <= 300);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.machinelinking.stanbol.enhancer.engines.machinelinking.impl;
+
+import org.apache.clerezza.rdf.core.UriRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the {@link UriRefCache} class.
+ */
+public class UriRefCacheTest {
+
+    @Test
+    public void testInterning() {
+        UriRefCache<String> cache = new UriRefCache<String>(10);
+        UriRef uri = cache.put("a", new UriRef("urn:test:a"));
+        Assert.assertSame(uri, cache.get("a"));
+        //an other instance for the same key returns the cached one
+        Assert.assertSame(uri, cache.put("a", new UriRef("urn:test:a")));
+        Assert.assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void testGenerations() {
+        UriRefCache<String> cache = new UriRefCache<String>(4);
+        UriRef a = cache.put("a", new UriRef("urn:test:a"));
+        cache.put("b", new UriRef("urn:test:b"));
+        cache.put("c", new UriRef("urn:test:c")); //a,b,c become the old generation
+        Assert.assertSame(a, cache.get("a")); //promotes a
+        cache.put("d", new UriRef("urn:test:d"));
+        cache.put("e", new UriRef("urn:test:e")); //a,d,e become the old generation
+        Assert.assertSame(a, cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNull(cache.get("c"));
+        Assert.assertTrue(cache.size() <= 6);
+    }
+}